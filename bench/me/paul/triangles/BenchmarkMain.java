@@ -0,0 +1,27 @@
+package me.paul.triangles;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Entry point of benchmarks.jar
+ * Takes the usual JMH command line, but always adds the gc profiler
+ * so every run reports allocation rate next to ns/op
+ * @version 1.0
+ */
+
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,70 @@
+package me.paul.triangles;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import processing.core.PVector;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Measures the hit detection broadphase: keeping the SpatialHash up to date
+ * as every Triangle moves, then finding the first Triangle every Bullet touches,
+ * a cell of Bullets at a time, as hit mode does.
+ * <p>
+ * scale multiplies both the entity counts (500 Triangles, 1500 Bullets)
+ * and the area of the World, so density stays the same
+ * and so does the work for every Bullet and Triangle.
+ * The time still grows a little faster than scale,
+ * as from 16 on the grid and the Bullets no longer fit in the cache
+ * @version 1.0
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BroadphaseBenchmark {
+
+    @Param({"1", "4", "16", "64"})
+    public int scale;
+
+    private World world;
+    private TriangleRing triangles;
+    private float step;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        float side = (float) Math.sqrt(scale);
+        world = new World((int) (Worlds.WIDTH * side), (int) (Worlds.HEIGHT * side), 1);
+
+        Random random = new Random(42);
+        for (int i = 0; i < 500 * scale; i++) {
+            world.addTriangle(random.nextFloat() * world.getWidth(), random.nextFloat() * world.getHeight());
+        }
+        Worlds.addBullets(world, 1500 * scale, random);
+
+        triangles = world.getTriangles();
+        step = 4;
+    }
+
+    @Benchmark
+    public void broadphase(Blackhole bh) {
+        SpatialHash hash = world.getHash();
+
+        //  Nudge every Triangle back and forth, so some cross into new cells
+        step = -step;
+        for (int i = 0; i < triangles.size(); i++) {
+            Triangle t = triangles.get(i);
+            PVector pos = t.getPos();
+            pos.x += step;
+            hash.update(t);
+        }
+
+        bh.consume(world.findHits());
+    }
+}
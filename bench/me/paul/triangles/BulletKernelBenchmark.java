@@ -0,0 +1,93 @@
+package me.paul.triangles;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Compares the scalar and vector BulletKernels on one update of every Bullet.
+ * Gravity is off so the time is all integration.
+ * <p>
+ * Every measurement is one batch of BATCH updates, and the same Bullets are put back before every batch,
+ * scattered far enough inside the walls that none of them reaches one during the batch.
+ * So every update moves exactly the given amount of Bullets, with bounce on or off.
+ * Scores are per update.
+ * <p>
+ * The vector kernel needs benchmarks.jar built with -Pbench,vector;
+ * without it the vector runs fail rather than quietly measuring the scalar kernel
+ * @version 1.0
+ */
+
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 200)
+@Measurement(iterations = 200)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class BulletKernelBenchmark {
+
+    /**
+     * Updates per measurement
+     */
+    static final int BATCH = 25;
+
+    /**
+     * Closest a Bullet starts to a wall, further than it moves in a batch
+     */
+    private static final float MARGIN = BATCH * BulletStore.MAG + BulletStore.RADIUS;
+
+    @Param({"scalar", "vector"})
+    public String kernel;
+
+    @Param({"true", "false"})
+    public boolean bounce;
+
+    @Param({"1500", "100000"})
+    public int bullets;
+
+    private World world;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        world = new World(Worlds.WIDTH, Worlds.HEIGHT, 1);
+        world.setBounceMode(bounce);
+
+        BulletKernel k = BulletStore.loadKernel(kernel);
+        if (!k.getName().equals(kernel)) {
+            throw new IllegalStateException("kernel " + kernel + " is not available");
+        }
+        world.getBullets().setKernel(k);
+    }
+
+    /**
+     * Puts the same Bullets back before every batch
+     */
+    @Setup(Level.Iteration)
+    public void refill() {
+        world.getBullets().clear();
+        Worlds.addBullets(world, bullets, MARGIN, new Random(42));
+    }
+
+    /**
+     * Fails the run if any Bullet was dropped, as every update would no longer move them all
+     */
+    @TearDown(Level.Iteration)
+    public void check() {
+        if (world.getBullets().getLiveCount() != bullets) {
+            throw new IllegalStateException(world.getBullets().getLiveCount() + " of " + bullets + " Bullets left");
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public BulletStore update() {
+        BulletStore store = world.getBullets();
+        for (int i = 0; i < BATCH; i++) {
+            store.update();
+        }
+        return store;
+    }
+}
@@ -0,0 +1,73 @@
+package me.paul.triangles;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Measures removing every Bullet of one Triangle, the two ways the World does it.
+ * The oldest Triangle is removed on its own, its Bullets dropped by the next Bullet update,
+ * and Triangles destroyed by hits have their Bullets packed out at once by removeOwners.
+ * Half of the Bullets belong to the removed Triangle, spread through the store,
+ * and update measures the same update with nothing to drop, to compare removeOldest with
+ * @version 1.0
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BulletRemovalBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int bullets;
+
+    private World world;
+    private Random random;
+    private int[] owners;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        random = new Random(42);
+        owners = new int[]{0};
+    }
+
+    /**
+     * A new World every time, as removing the oldest Triangle cannot be undone.
+     * Its two Triangles own the Bullets, 0 being the oldest
+     */
+    @Setup(Level.Invocation)
+    public void fill() {
+        world = Worlds.create();
+        world.addTriangle(Worlds.WIDTH / 3f, Worlds.HEIGHT / 2f);
+        world.addTriangle(Worlds.WIDTH * 2 / 3f, Worlds.HEIGHT / 2f);
+        Worlds.addBullets(world, bullets, random);
+    }
+
+    @Benchmark
+    public BulletStore removeOldest() {
+        world.removeOldest();
+        BulletStore store = world.getBullets();
+        store.update();
+        return store;
+    }
+
+    @Benchmark
+    public BulletStore removeOwners() {
+        BulletStore store = world.getBullets();
+        store.removeOwners(owners, 1);
+        return store;
+    }
+
+    @Benchmark
+    public BulletStore update() {
+        BulletStore store = world.getBullets();
+        store.update();
+        return store;
+    }
+}
@@ -0,0 +1,51 @@
+package me.paul.triangles;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Measures one update of every Bullet with a growing amount of workers,
+ * to show how the parallel update scales across cores.
+ * Uses TRUE gravity with bounce on, so the count stays steady
+ * @version 1.0
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BulletScalingBenchmark {
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int workers;
+
+    @Param({"100000", "1000000"})
+    public int bullets;
+
+    private World world;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        world = new World(Worlds.WIDTH, Worlds.HEIGHT, workers);
+        world.setGravityMode(Gravity.TRUE);
+        world.setBounceMode(true);
+        Worlds.addBullets(world, bullets, new Random(42));
+
+        InputState input = new InputState();
+        input.setMouse(Worlds.WIDTH / 2, Worlds.HEIGHT / 2);
+        world.step(input);
+    }
+
+    @Benchmark
+    public BulletStore update() {
+        BulletStore store = world.getBullets();
+        store.update();
+        return store;
+    }
+}
@@ -0,0 +1,60 @@
+package me.paul.triangles;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Measures one update of every Bullet, under each Gravity mode.
+ * Bounce is on so no Bullet leaves and the count stays steady.
+ * <p>
+ * MULTI_POINT:n runs MULTI_POINT gravity with n gravity points
+ * @version 1.0
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BulletUpdateBenchmark {
+
+    @Param({"OFF", "SIMPLE", "TRUE", "POINT", "MULTI_POINT:1", "MULTI_POINT:10", "MULTI_POINT:100"})
+    public String gravity;
+
+    @Param({"1500", "100000"})
+    public int bullets;
+
+    private World world;
+    private InputState input;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        world = Worlds.create();
+        input = new InputState();
+        input.setMouse(world.getWidth() / 3, world.getHeight() / 3);
+
+        String[] mode = gravity.split(":");
+        world.setGravityMode(Gravity.valueOf(mode[0]));
+        if (mode.length > 1) {
+            Worlds.addGravityPoints(world, Integer.parseInt(mode[1]) - 1, new Random(7));
+        }
+        world.setBounceMode(true);
+
+        Worlds.addBullets(world, bullets, new Random(42));
+
+        //  Let the mouse location reach the World
+        world.step(input);
+    }
+
+    @Benchmark
+    public BulletStore update() {
+        BulletStore store = world.getBullets();
+        store.update();
+        return store;
+    }
+}
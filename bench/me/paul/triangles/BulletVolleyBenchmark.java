@@ -0,0 +1,54 @@
+package me.paul.triangles;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Measures the frame where a volley leaves the window,
+ * with every other Bullet flying off-screen during the update
+ * and the rest staying on, so the survivors have to be packed together
+ * @version 1.0
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BulletVolleyBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int bullets;
+
+    private World world;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        world = Worlds.create();
+        world.getBullets().setLimit(bullets);
+    }
+
+    @Setup(Level.Invocation)
+    public void fill() {
+        BulletStore store = world.getBullets();
+        store.clear();
+
+        //  Right at the right edge, half heading out and half heading back in
+        float x = Worlds.WIDTH + BulletStore.RADIUS - 1;
+        for (int i = 0; i < bullets; i++) {
+            float y = (i * 7919 % Worlds.HEIGHT);
+            store.add(x, y, i % 2 == 0 ? 1 : -1, 0, i % 2);
+        }
+    }
+
+    @Benchmark
+    public BulletStore volley() {
+        BulletStore store = world.getBullets();
+        store.update();
+        return store;
+    }
+}
@@ -0,0 +1,85 @@
+package me.paul.triangles;
+
+import org.openjdk.jmh.annotations.*;
+import processing.core.PConstants;
+import processing.core.PVector;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Measures one update of every Triangle, with each arrow key held.
+ * Triangles are put back where they started after every update,
+ * so every operation steers from the same spread of positions
+ * instead of a pile of Triangles sitting on the cursor
+ * @version 1.0
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TriangleUpdateBenchmark {
+
+    @Param({"NONE", "UP", "DOWN", "LEFT", "RIGHT"})
+    public String steering;
+
+    @Param({"500", "5000"})
+    public int triangles;
+
+    private InputState input;
+    private TriangleRing list;
+    private float[] startX;
+    private float[] startY;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        World world = Worlds.create();
+        input = new InputState();
+        input.setMouse(world.getWidth() / 2, world.getHeight() / 2);
+
+        switch (steering) {
+            case "UP":
+                input.keyPressed((char) PConstants.CODED, PConstants.UP);
+                break;
+            case "DOWN":
+                input.keyPressed((char) PConstants.CODED, PConstants.DOWN);
+                break;
+            case "LEFT":
+                input.keyPressed((char) PConstants.CODED, PConstants.LEFT);
+                break;
+            case "RIGHT":
+                input.keyPressed((char) PConstants.CODED, PConstants.RIGHT);
+                break;
+            default:
+                break;
+        }
+
+        Random random = new Random(42);
+        startX = new float[triangles];
+        startY = new float[triangles];
+        for (int i = 0; i < triangles; i++) {
+            startX[i] = random.nextFloat() * world.getWidth();
+            startY[i] = random.nextFloat() * world.getHeight();
+            world.addTriangle(startX[i], startY[i]);
+        }
+        list = world.getTriangles();
+    }
+
+    @Benchmark
+    public TriangleRing update() {
+        for (int i = 0; i < list.size(); i++) {
+            Triangle t = list.get(i);
+            t.update(input);
+
+            PVector pos = t.getPos();
+            pos.x = startX[i];
+            pos.y = startY[i];
+        }
+        return list;
+    }
+}
@@ -0,0 +1,75 @@
+package me.paul.triangles;
+
+import java.util.Random;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Helpers to build a populated World for the benchmarks
+ * @version 1.0
+ */
+
+final class Worlds {
+
+    /**
+     * Size of the benchmark World, the default window size
+     */
+    static final int WIDTH = 1600;
+    static final int HEIGHT = 800;
+
+    private Worlds() {
+    }
+
+    static World create() {
+        return new World(WIDTH, HEIGHT);
+    }
+
+    /**
+     * Scatters Bullets over the World with random headings,
+     * raising the Bullet limit to fit them.
+     * Owners alternate between 0 and 1
+     *
+     * @param world  the World to add to
+     * @param count  amount of Bullets to add
+     * @param random source of locations and headings
+     */
+    static void addBullets(World world, int count, Random random) {
+        addBullets(world, count, 0, random);
+    }
+
+    /**
+     * Scatters Bullets over the World with random headings, keeping them away from the walls,
+     * raising the Bullet limit to fit them.
+     * Owners alternate between 0 and 1
+     *
+     * @param world  the World to add to
+     * @param count  amount of Bullets to add
+     * @param margin closest a Bullet may be to a wall
+     * @param random source of locations and headings
+     */
+    static void addBullets(World world, int count, float margin, Random random) {
+        BulletStore store = world.getBullets();
+        if (store.getLimit() < store.size() + count) {
+            store.setLimit(store.size() + count);
+        }
+        for (int i = 0; i < count; i++) {
+            float heading = random.nextFloat() * (float) Math.PI * 2;
+            store.add(margin + random.nextFloat() * (world.getWidth() - margin * 2),
+                    margin + random.nextFloat() * (world.getHeight() - margin * 2),
+                    (float) Math.cos(heading), (float) Math.sin(heading), i % 2);
+        }
+    }
+
+    /**
+     * Adds random gravity points to the World
+     *
+     * @param world  the World to add to
+     * @param count  amount of points to add
+     * @param random source of locations
+     */
+    static void addGravityPoints(World world, int count, Random random) {
+        for (int i = 0; i < count; i++) {
+            world.addGravityPoint(random.nextFloat() * world.getWidth(), random.nextFloat() * world.getHeight());
+        }
+    }
+}
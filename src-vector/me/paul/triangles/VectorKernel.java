@@ -0,0 +1,119 @@
+package me.paul.triangles;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * BulletKernel moving a whole vector of Bullets at a time with the Java Vector API,
+ * as many as the CPU's widest registers hold (8 with AVX2).
+ * Bounces are lane masks instead of branches, so every lane does the same work.
+ * <p>
+ * A vector of survivors is stored packed in one go;
+ * only a vector with a Bullet to drop is packed lane by lane.
+ * Slots left over at the end of a range go to the ScalarKernel.
+ * <p>
+ * Only built with the vector profile, and only runs with
+ * --add-modules jdk.incubator.vector. The BulletStore loads it by name
+ * @version 1.0
+ */
+
+class VectorKernel implements BulletKernel {
+
+    static final String NAME = "vector";
+
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = VectorSpecies.of(int.class, FLOATS.vectorShape());
+    private static final int LANES = FLOATS.length();
+
+    @Override
+    public int integrate(float[] x, float[] y, float[] vx, float[] vy, float[] ax, float[] ay,
+                         int[] owner, int[] expires, boolean[] alive, int from, int to, BulletFrame frame) {
+        float decay = frame.getDecay();
+        boolean bounce = frame.getBounce();
+        float minX = frame.getMinX();
+        float minY = frame.getMinY();
+        float maxX = frame.getMaxX();
+        float maxY = frame.getMaxY();
+        float cullMinX = frame.getCullMinX();
+        float cullMinY = frame.getCullMinY();
+        float cullMaxX = frame.getCullMaxX();
+        float cullMaxY = frame.getCullMaxY();
+        int step = frame.getStep();
+        int minOwner = frame.getMinOwner();
+
+        int live = from;
+        int i = from;
+        for (int end = from + FLOATS.loopBound(to - from); i < end; i += LANES) {
+            //  Killed since the last update, too old, or owner evicted
+            VectorMask<Integer> keepInts = IntVector.fromArray(INTS, expires, i).compare(VectorOperators.GT, step)
+                    .and(IntVector.fromArray(INTS, owner, i).compare(VectorOperators.GE, minOwner));
+            VectorMask<Float> keep = VectorMask.fromArray(FLOATS, alive, i).and(keepInts.cast(FLOATS));
+
+            FloatVector nvx = FloatVector.fromArray(FLOATS, vx, i).add(FloatVector.fromArray(FLOATS, ax, i)).mul(decay);
+            FloatVector nvy = FloatVector.fromArray(FLOATS, vy, i).add(FloatVector.fromArray(FLOATS, ay, i)).mul(decay);
+            FloatVector nx = FloatVector.fromArray(FLOATS, x, i).add(nvx);
+            FloatVector ny = FloatVector.fromArray(FLOATS, y, i).add(nvy);
+
+            if (bounce) {
+                VectorMask<Float> left = nx.compare(VectorOperators.LT, minX);
+                VectorMask<Float> right = nx.compare(VectorOperators.GT, maxX).andNot(left);
+                VectorMask<Float> top = ny.compare(VectorOperators.LT, minY);
+                VectorMask<Float> bottom = ny.compare(VectorOperators.GT, maxY).andNot(top);
+                nvx = nvx.blend(nvx.neg(), left.or(right));
+                nx = nx.blend(minX, left).blend(maxX, right);
+                nvy = nvy.blend(nvy.neg(), top.or(bottom));
+                ny = ny.blend(minY, top).blend(maxY, bottom);
+            } else {
+                VectorMask<Float> out = nx.compare(VectorOperators.LT, cullMinX)
+                        .or(nx.compare(VectorOperators.GT, cullMaxX))
+                        .or(ny.compare(VectorOperators.LT, cullMinY))
+                        .or(ny.compare(VectorOperators.GT, cullMaxY));
+                keep = keep.andNot(out);
+            }
+
+            if (keep.allTrue()) {
+                nx.intoArray(x, live);
+                ny.intoArray(y, live);
+                nvx.intoArray(vx, live);
+                nvy.intoArray(vy, live);
+                if (live != i) {
+                    System.arraycopy(owner, i, owner, live, LANES);
+                    System.arraycopy(expires, i, expires, live, LANES);
+                    keep.intoArray(alive, live);
+                }
+                live += LANES;
+            } else if (keep.anyTrue()) {
+                //  Write the vector back in place, then slide the survivors down one by one
+                nx.intoArray(x, i);
+                ny.intoArray(y, i);
+                nvx.intoArray(vx, i);
+                nvy.intoArray(vy, i);
+                long lanes = keep.toLong();
+                for (int l = 0; l < LANES; l++) {
+                    if ((lanes & (1L << l)) != 0) {
+                        x[live] = x[i + l];
+                        y[live] = y[i + l];
+                        vx[live] = vx[i + l];
+                        vy[live] = vy[i + l];
+                        owner[live] = owner[i + l];
+                        expires[live] = expires[i + l];
+                        alive[live] = true;
+                        live++;
+                    }
+                }
+            }
+        }
+
+        return ScalarKernel.pack(x, y, vx, vy, ax, ay, owner, expires, alive, i, to, live, frame) - from;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}
@@ -0,0 +1,365 @@
+package me.paul.triangles;
+
+import processing.core.PApplet;
+import processing.core.PGraphics;
+import processing.core.PImage;
+
+import java.io.IOException;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Runs a Scenario in every gravity mode, updating Bullets by slot and then by tile,
+ * and measures the bytes every part of a frame allocates,
+ * on the thread running it, with the JVM's own count of bytes allocated per thread.
+ * Fails, exiting with 1, if any part allocates anything in any measured frame.
+ * <p>
+ * A frame here is everything the window and the Simulation do for one step without a display:
+ * driving and stepping the World and recording its timings, copying it into a Snapshot,
+ * writing every Bullet and Triangle out for drawing, drawing the window's own Hud,
+ * laying out the controls box, publishing the Snapshot to a StreamServer with a viewer connected,
+ * and capturing the frame's pixels.
+ * Every frame is drawn at the next Quality, so the HUD is written both straight and through its buffer.
+ * Drawing goes to a PGraphics that throws everything away,
+ * so only this project's code is measured, not the renderer's.
+ * <p>
+ * Bullets are updated by a pool of WORKERS threads, and the Scenario should keep enough of them alive
+ * for the slot runs to split them into chunks.
+ * The pool's own threads are measured too, as one total over the measured frames.
+ * The viewer's thread sending the stream and the encoders writing captures to disk are not measured,
+ * as sockets and files allocate in the JDK's own code.
+ * <p>
+ * The JIT allocates a little on the thread whenever it swaps in a newly compiled method,
+ * so every mode is run once unmeasured first,
+ * and measuring a mode only starts once the JIT has compiled nothing for QUIET_FRAMES frames,
+ * the viewer is connected, and the pool has started every one of its threads.
+ * <p>
+ * The Scenario should spawn nothing once started, as every new Triangle is an object,
+ * and leave hits off, as a World losing Triangles never settles into a steady state.
+ * <p>
+ * Usage: AllocationCheck [scenario] [frames]
+ * @version 1.0
+ */
+
+class AllocationCheck {
+
+    private static final String DEFAULT_SCENARIO = "scenarios/steady.txt";
+
+    /**
+     * Least frames run before measuring, for every buffer to reach its size
+     */
+    private static final int WARMUP_FRAMES = 600;
+
+    /**
+     * Frames the JIT must compile nothing for before measuring, and most frames to wait for that
+     */
+    private static final int QUIET_FRAMES = 2000;
+    private static final int MAX_WARMUP_FRAMES = 60000;
+
+    /**
+     * Tiles to update Bullets by in the tiled runs
+     */
+    private static final int TILE_COLUMNS = 4;
+    private static final int TILE_ROWS = 2;
+
+    /**
+     * Threads updating Bullets, and encoders writing captures
+     */
+    private static final int WORKERS = 4;
+    private static final int ENCODERS = 2;
+
+    /**
+     * Size of the captured frames, and how many files they take turns writing to
+     */
+    private static final int CAPTURE_WIDTH = 64;
+    private static final int CAPTURE_HEIGHT = 32;
+    private static final int CAPTURE_FILES = 100;
+
+    /**
+     * Parts measured on the thread running a frame, then the pool's threads
+     */
+    private static final String[] PARTS = {"step", "snapshot", "draw", "hud", "controls", "stream", "capture", "workers"};
+    private static final int FRAME_PARTS = PARTS.length - 1;
+
+    public static void main(String[] args) throws IOException {
+        String path = args.length > 0 ? args[0] : DEFAULT_SCENARIO;
+        Scenario scenario = Scenario.load(path);
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : scenario.getFrames();
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        //  What reading the count costs, taken off every reading
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < 100; i++) {
+            long before = threads.getThreadAllocatedBytes(thread);
+            overhead = Math.min(overhead, threads.getThreadAllocatedBytes(thread) - before);
+        }
+
+        //  Warm every mode first, as each one compiles code the others also run
+        for (boolean tiled : new boolean[]{false, true}) {
+            for (Gravity mode : Gravity.values()) {
+                run(scenario, mode, tiled, 0, new long[PARTS.length], threads, thread, overhead);
+            }
+        }
+
+        System.out.printf("scenario: %s%n", path);
+        System.out.printf("frames: %d%n", frames);
+        boolean failed = false;
+        for (boolean tiled : new boolean[]{false, true}) {
+            for (Gravity mode : Gravity.values()) {
+                String label = tiled ? mode + "_tiled" : mode.toString();
+                long[] bytes = new long[PARTS.length];
+                int warmup = run(scenario, mode, tiled, frames, bytes, threads, thread, overhead);
+                System.out.printf("%s_warmup_frames: %d%n", label, warmup);
+                for (int p = 0; p < PARTS.length; p++) {
+                    System.out.printf("%s_%s_bytes: %d%n", label, PARTS[p], bytes[p]);
+                    failed |= bytes[p] > 0;
+                }
+            }
+        }
+        System.out.printf("result: %s%n", failed ? "FAIL" : "PASS");
+        System.exit(failed ? 1 : 0);
+    }
+
+    /**
+     * Warms up then measures one gravity mode
+     *
+     * @param frames frames to measure, 0 only to warm up
+     * @param bytes  filled with the bytes allocated by every part over the measured frames
+     * @return frames run before measuring
+     */
+    private static int run(Scenario scenario, Gravity mode, boolean tiled, int frames, long[] bytes,
+                           com.sun.management.ThreadMXBean threads, long thread, long overhead) throws IOException {
+        InputState input = new InputState();
+        World world = scenario.start(1, WORKERS, input);
+        world.setGravityMode(mode);
+        world.getBullets().setTiles(tiled ? new TileGrid(TILE_COLUMNS, TILE_ROWS) : null);
+
+        Metrics metrics = new Metrics(null);
+        Simulation sim = new Simulation(world, metrics);
+        StreamServer server = new StreamServer("0");
+        StreamClient client = new StreamClient(Integer.toString(server.getPort()));
+        client.start();
+        Path captureDir = Files.createTempDirectory("triangles-allocation");
+        FrameCapture capture = new FrameCapture(captureDir.toString(), "raw", ENCODERS, false);
+        PGraphics captured = NullGraphics.sized(CAPTURE_WIDTH, CAPTURE_HEIGHT);
+        Hud hud = new Hud(new NullSketch(), new FrameGovernor(FrameGovernor.DEFAULT_BUDGET_MS, "auto"),
+                sim, null, server, capture);
+
+        Snapshot back = new Snapshot();
+        Snapshot front = new Snapshot();
+        BulletRenderer bulletRenderer = new BulletRenderer();
+        TriangleRenderer triangleRenderer = new TriangleRenderer();
+        HudText line = new HudText();
+        ControlsBox controls = new ControlsBox(new TriangleManager());
+        PGraphics g = NullGraphics.sized(world.getWidth(), world.getHeight());
+        Quality[] qualities = Quality.values();
+
+        CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+        boolean jitTimed = jit != null && jit.isCompilationTimeMonitoringSupported();
+        long jitTime = -1;
+        int quietSince = 0;
+        int warmup = -1;
+        long[] workers = new long[0];
+        long[] workerStart = new long[0];
+
+        long[] mark = new long[FRAME_PARTS + 1];
+        for (int frame = 0; warmup < 0 || frame < warmup + frames; frame++) {
+            mark[0] = threads.getThreadAllocatedBytes(thread);
+
+            scenario.drive(world, input, frame, 1);
+            long start = System.nanoTime();
+            world.step(input);
+            long end = System.nanoTime();
+            metrics.record(Phase.STEP, end - start);
+            metrics.record(Phase.BULLET_UPDATE, world.getBulletUpdateTime());
+            metrics.record(Phase.TRIANGLE_UPDATE, world.getTriangleUpdateTime());
+            metrics.record(Phase.HITS, world.getHitTime());
+            mark[1] = threads.getThreadAllocatedBytes(thread);
+
+            back.capture(world, front, end);
+            Snapshot done = back;
+            back = front;
+            front = done;
+            mark[2] = threads.getThreadAllocatedBytes(thread);
+
+            //  Every Quality in turn, as the FrameGovernor may pick any of them
+            Quality quality = qualities[frame % qualities.length];
+            float alpha = Simulation.alpha(front);
+            bulletRenderer.draw(g, front, alpha, quality);
+            triangleRenderer.draw(g, front, alpha);
+            mark[3] = threads.getThreadAllocatedBytes(thread);
+
+            hud.setFrame(input.getMouseX(), input.getMouseY(), 60, frame, quality, true);
+            hud.draw(line, g, front, metrics);
+            metrics.record(Phase.FRAME, System.nanoTime() - end);
+            metrics.tick(System.nanoTime());
+            mark[4] = threads.getThreadAllocatedBytes(thread);
+
+            controls.update();
+            mark[5] = threads.getThreadAllocatedBytes(thread);
+
+            server.publish(front);
+            mark[6] = threads.getThreadAllocatedBytes(thread);
+
+            capture.capture(captured, frame % CAPTURE_FILES);
+            mark[7] = threads.getThreadAllocatedBytes(thread);
+
+            if (warmup < 0) {
+                //  Warm until the JIT has settled and the viewer is watching, or give up waiting and measure anyway
+                long time = jitTimed ? jit.getTotalCompilationTime() : 0;
+                if (time != jitTime || server.getViewers() == 0) {
+                    jitTime = time;
+                    quietSince = frame;
+                }
+                if ((frame >= WARMUP_FRAMES && frame - quietSince >= QUIET_FRAMES) || frame >= MAX_WARMUP_FRAMES) {
+                    //  The pool starts its threads as it needs them, and starting one allocates on another
+                    workers = workerIds(world.getBullets());
+                    if (workers.length < world.getBullets().getWorkers() && frame < MAX_WARMUP_FRAMES) {
+                        quietSince = frame;
+                        continue;
+                    }
+                    warmup = frame + 1;
+                    workerStart = new long[workers.length];
+                    for (int w = 0; w < workers.length; w++) {
+                        workerStart[w] = threads.getThreadAllocatedBytes(workers[w]);
+                    }
+                }
+                continue;
+            }
+            for (int p = 0; p < FRAME_PARTS; p++) {
+                bytes[p] += Math.max(0, mark[p + 1] - mark[p] - overhead);
+            }
+        }
+        for (int w = 0; w < workers.length; w++) {
+            bytes[FRAME_PARTS] += Math.max(0, threads.getThreadAllocatedBytes(workers[w]) - workerStart[w]);
+        }
+
+        client.stop();
+        server.close();
+        capture.close();
+        try (Stream<Path> files = Files.list(captureDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(captureDir);
+        return warmup;
+    }
+
+    /**
+     * @return ids of the threads in the pool updating a BulletStore
+     */
+    private static long[] workerIds(BulletStore bullets) {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(bullets::isWorker)
+                .mapToLong(Thread::getId)
+                .toArray();
+    }
+
+    /**
+     * A sketch whose buffers draw nothing, for the Hud to make its buffer with
+     */
+    private static class NullSketch extends PApplet {
+
+        @Override
+        public PGraphics createGraphics(int w, int h, String renderer) {
+            return NullGraphics.sized(w, h);
+        }
+    }
+
+    /**
+     * A PGraphics that draws nothing
+     */
+    private static class NullGraphics extends PGraphics {
+
+        static NullGraphics sized(int w, int h) {
+            NullGraphics g = new NullGraphics();
+            g.width = w;
+            g.height = h;
+            g.pixelWidth = w;
+            g.pixelHeight = h;
+            g.pixels = new int[w * h];
+            return g;
+        }
+
+        @Override
+        public void loadPixels() {
+        }
+
+        @Override
+        public void beginDraw() {
+        }
+
+        @Override
+        public void endDraw() {
+        }
+
+        @Override
+        public void clear() {
+        }
+
+        @Override
+        public void image(PImage img, float a, float b) {
+        }
+
+        @Override
+        public void beginShape(int kind) {
+        }
+
+        @Override
+        public void vertex(float x, float y) {
+        }
+
+        @Override
+        public void endShape(int mode) {
+        }
+
+        @Override
+        public void fill(int rgb) {
+        }
+
+        @Override
+        public void stroke(int rgb) {
+        }
+
+        @Override
+        public void noStroke() {
+        }
+
+        @Override
+        public void strokeWeight(float weight) {
+        }
+
+        @Override
+        public void strokeCap(int cap) {
+        }
+
+        @Override
+        public void textSize(float size) {
+        }
+
+        @Override
+        public void textMode(int mode) {
+        }
+
+        @Override
+        public void textAlign(int alignX) {
+        }
+
+        @Override
+        public void text(String str, float x, float y) {
+        }
+
+        @Override
+        public void text(char[] chars, int start, int stop, float x, float y) {
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package me.paul.triangles;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * A fixed layout block of entity data: a set amount of columns,
+ * each holding one 4 byte float or int per slot.
+ * Column c, slot i is at byte (c * capacity + i) * 4,
+ * so a whole column can be written in one bulk copy.
+ * <p>
+ * Off the heap the block is one direct buffer,
+ * which the garbage collector never copies or scans however many slots there are.
+ * On the heap it is a plain buffer, laid out the same
+ * <p>
+ * Only Snapshots are held in Arenas.
+ * A World's own BulletStore keeps its columns in float arrays on the heap, whatever DEFAULT_OFF_HEAP says
+ * @version 1.0
+ */
+
+class Arena {
+
+    /**
+     * Whether new Arenas live off the heap
+     * Set with -Dtriangles.offHeap=true, on the heap by default
+     */
+    static final boolean DEFAULT_OFF_HEAP = Boolean.getBoolean("triangles.offHeap");
+
+    private final int columns;
+    private final boolean offHeap;
+
+    /**
+     * The block, and a view of it for bulk copies
+     */
+    private ByteBuffer buffer;
+    private FloatBuffer floats;
+    private int capacity;
+
+    /**
+     * Constructor for an empty Arena object
+     *
+     * @param columns_ amount of columns
+     * @param offHeap_ whether to live off the heap
+     */
+
+    Arena(int columns_, boolean offHeap_) {
+        columns = columns_;
+        offHeap = offHeap_;
+        allocate(0);
+    }
+
+    /**
+     * Makes room for at least an amount of slots in every column
+     * Growing doubles the capacity, and loses what was held
+     *
+     * @param slots slots needed
+     */
+    void reserve(int slots) {
+        if (slots > capacity) {
+            allocate(Math.max(slots, capacity * 2));
+        }
+    }
+
+    private void allocate(int capacity_) {
+        capacity = capacity_;
+        int bytes = columns * capacity * 4;
+        buffer = (offHeap ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.allocate(bytes)).order(ByteOrder.nativeOrder());
+        floats = buffer.asFloatBuffer();
+    }
+
+    float getFloat(int column, int i) {
+        return buffer.getFloat((column * capacity + i) << 2);
+    }
+
+    void putFloat(int column, int i, float value) {
+        buffer.putFloat((column * capacity + i) << 2, value);
+    }
+
+    int getInt(int column, int i) {
+        return buffer.getInt((column * capacity + i) << 2);
+    }
+
+    void putInt(int column, int i, int value) {
+        buffer.putInt((column * capacity + i) << 2, value);
+    }
+
+    /**
+     * Copies a run of floats into a column in one go
+     *
+     * @param column column to copy into
+     * @param at     first slot to copy into
+     * @param src    floats to copy
+     * @param from   first float to copy
+     * @param n      amount of floats
+     */
+    void putFloats(int column, int at, float[] src, int from, int n) {
+        floats.position(column * capacity + at);
+        floats.put(src, from, n);
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * @return size of the block, in bytes
+     */
+    long getBytes() {
+        return (long) columns * capacity * 4;
+    }
+}
@@ -0,0 +1,112 @@
+package me.paul.triangles;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * World settings a BulletKernel needs for one frame of updates,
+ * read once by the BulletStore so the kernel never touches the World.
+ * Holds the walls Bullets bounce off and the edges past which they are dropped
+ * @version 1.0
+ */
+
+class BulletFrame {
+
+    private float decay;
+    private boolean bounce;
+
+    /**
+     * Walls Bullets bounce off, when bouncing
+     */
+    private float minX;
+    private float minY;
+    private float maxX;
+    private float maxY;
+
+    /**
+     * Edges past which Bullets are dropped, when not bouncing
+     */
+    private float cullMinX;
+    private float cullMinY;
+    private float cullMaxX;
+    private float cullMaxY;
+
+    /**
+     * Step being updated, and the id of the oldest Triangle
+     */
+    private int step;
+    private int minOwner;
+
+    /**
+     * Sets up this frame
+     *
+     * @param decay_    velocity kept every step
+     * @param bounce_   whether Bullets bounce off the walls
+     * @param width     width of the world
+     * @param height    height of the world
+     * @param border    weight of the window border
+     * @param step_     step being updated
+     * @param minOwner_ id of the oldest Triangle
+     */
+    void set(float decay_, boolean bounce_, float width, float height, float border, int step_, int minOwner_) {
+        decay = decay_;
+        bounce = bounce_;
+        minX = 0 + BulletStore.RADIUS + border;
+        minY = 0 + BulletStore.RADIUS + border;
+        maxX = width - BulletStore.RADIUS - border;
+        maxY = height - BulletStore.RADIUS - border;
+        cullMinX = 0 - BulletStore.RADIUS;
+        cullMinY = 0 - BulletStore.RADIUS;
+        cullMaxX = width + BulletStore.RADIUS;
+        cullMaxY = height + BulletStore.RADIUS;
+        step = step_;
+        minOwner = minOwner_;
+    }
+
+    float getDecay() {
+        return decay;
+    }
+
+    boolean getBounce() {
+        return bounce;
+    }
+
+    float getMinX() {
+        return minX;
+    }
+
+    float getMinY() {
+        return minY;
+    }
+
+    float getMaxX() {
+        return maxX;
+    }
+
+    float getMaxY() {
+        return maxY;
+    }
+
+    float getCullMinX() {
+        return cullMinX;
+    }
+
+    float getCullMinY() {
+        return cullMinY;
+    }
+
+    float getCullMaxX() {
+        return cullMaxX;
+    }
+
+    float getCullMaxY() {
+        return cullMaxY;
+    }
+
+    int getStep() {
+        return step;
+    }
+
+    int getMinOwner() {
+        return minOwner;
+    }
+}
@@ -0,0 +1,33 @@
+package me.paul.triangles;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * The inner loop of a Bullet update: adds acceleration to velocity,
+ * applies decay, moves, and bounces or drops Bullets at the walls.
+ * Bullets killed, past their time-to-live, or whose Triangle is gone are dropped too.
+ * <p>
+ * Survivors are written back packed, from the front of the range,
+ * which never overtakes the slot being read.
+ * Every kernel gives bit for bit the same result
+ * @version 1.0
+ */
+
+interface BulletKernel {
+
+    /**
+     * Integrates a range of Bullet slots
+     *
+     * @param from  first slot to move
+     * @param to    slot after the last one to move
+     * @param frame World settings for this frame
+     * @return amount of Bullets left in the range
+     */
+    int integrate(float[] x, float[] y, float[] vx, float[] vy, float[] ax, float[] ay,
+                  int[] owner, int[] expires, boolean[] alive, int from, int to, BulletFrame frame);
+
+    /**
+     * @return short name of the kernel, as given to -Dtriangles.kernel
+     */
+    String getName();
+}
@@ -0,0 +1,276 @@
+package me.paul.triangles;
+
+import processing.core.PConstants;
+import processing.core.PGraphics;
+
+import java.util.Arrays;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Draws every Bullet as one batch.
+ * Each frame the location and color of every Bullet is written
+ * into one reusable buffer, then the whole buffer is sent
+ * as a single TRIANGLES shape, with no per-Bullet shapes or state changes.
+ * <p>
+ * A Bullet is a black disc (its stroke) under a smaller colored disc,
+ * each a fan of SEGMENTS triangles.
+ * Works on any PGraphics, including JAVA2D for headless drawing
+ * <p>
+ * At a lower Quality the black disc is left out, discs are made of fewer triangles,
+ * Bullets are drawn as plain squares in one POINTS shape,
+ * or not drawn at all, with a map of how crowded every CELL is drawn in their place
+ * @version 1.0
+ */
+
+class BulletRenderer {
+
+    /**
+     * Defaults for drawing properties
+     * such as if the bullet is filled with color or hollow,
+     * stroke weight, and Brightness value
+     */
+    private static final boolean FILL = true;
+    private static final boolean STROKE = true;
+    private static final float STROKE_WEIGHT = 2;
+    private static final float BRIGHT = 85;
+
+    /**
+     * Amount of triangles making up each disc
+     */
+    private static final int SEGMENTS = 12;
+
+    /**
+     * Size of a square of the density map, in pixels
+     */
+    private static final int CELL = 16;
+
+    /**
+     * Colors used when a Bullet is not filled or not stroked
+     */
+    private static final int BLACK = 0xFF000000;
+
+    /**
+     * Color of a Bullet by its velocity
+     */
+    private static final ColorTable PALETTE = ColorTable.bySpeed(BRIGHT);
+
+    /**
+     * Outline of a unit circle, SEGMENTS + 1 points so the last wraps round
+     */
+    private final float[] unitX;
+    private final float[] unitY;
+
+    /**
+     * Location and color of every Bullet, reused every frame
+     */
+    private float[] centers;
+    private int[] colors;
+    private int count;
+
+    /**
+     * Bullets in every square of the density map, and their summed velocity, reused every frame
+     */
+    private int[] cellCount;
+    private float[] cellVelocityX;
+    private float[] cellVelocityY;
+
+    /**
+     * Constructor for a BulletRenderer object
+     */
+
+    BulletRenderer() {
+        unitX = new float[SEGMENTS + 1];
+        unitY = new float[SEGMENTS + 1];
+        for (int s = 0; s <= SEGMENTS; s++) {
+            double angle = Math.PI * 2 * s / SEGMENTS;
+            unitX[s] = (float) Math.cos(angle);
+            unitY[s] = (float) Math.sin(angle);
+        }
+
+        centers = new float[0];
+        colors = new int[0];
+        cellCount = new int[0];
+        cellVelocityX = new float[0];
+        cellVelocityY = new float[0];
+    }
+
+    /**
+     * Draws every Bullet to a PGraphics
+     *
+     * @param g        where to draw the Bullets
+     * @param snapshot the step holding the Bullets to draw
+     * @param alpha    how far between the step before and the snapshot's own, from 0 to 1
+     */
+    void draw(PGraphics g, Snapshot snapshot, float alpha) {
+        draw(g, snapshot, alpha, Quality.FULL);
+    }
+
+    /**
+     * Draws every Bullet to a PGraphics, in as much detail as a Quality allows
+     *
+     * @param g        where to draw the Bullets
+     * @param snapshot the step holding the Bullets to draw
+     * @param alpha    how far between the step before and the snapshot's own, from 0 to 1
+     * @param quality  how much detail to draw
+     */
+    void draw(PGraphics g, Snapshot snapshot, float alpha, Quality quality) {
+        if (quality.getDensity()) {
+            density(g, snapshot, alpha);
+            return;
+        }
+        fill(snapshot, alpha);
+        if (quality.getPoints()) {
+            points(g);
+        } else {
+            submit(g, quality.getOutline(), SEGMENTS / quality.getSegments());
+        }
+    }
+
+    /**
+     * Writes the location and color of every Bullet into the buffer
+     *
+     * @param snapshot the step holding the Bullets to write
+     * @param alpha    how far between the step before and the snapshot's own, from 0 to 1
+     */
+    private void fill(Snapshot snapshot, float alpha) {
+        count = snapshot.getBulletCount();
+        if (colors.length < count) {
+            centers = new float[count * 4];
+            colors = new int[count * 2];
+        }
+
+        for (int i = 0; i < count; i++) {
+            centers[i * 2] = snapshot.getBulletX(i, alpha);
+            centers[i * 2 + 1] = snapshot.getBulletY(i, alpha);
+
+            if (FILL) {
+                colors[i] = PALETTE.colorFor(snapshot.getBulletVelocityX(i), snapshot.getBulletVelocityY(i));
+            }
+        }
+    }
+
+    /**
+     * Sends the whole buffer as one shape
+     *
+     * @param g       where to draw the Bullets
+     * @param outline whether to draw the black disc under every Bullet
+     * @param step    points of the unit circle to skip between triangles, 1 for every point
+     */
+    private void submit(PGraphics g, boolean outline, int step) {
+        if (count == 0) {
+            return;
+        }
+
+        boolean stroke = STROKE && outline;
+        float outer = stroke ? BulletStore.RADIUS + STROKE_WEIGHT / 2 : BulletStore.RADIUS;
+        float inner = stroke ? BulletStore.RADIUS - STROKE_WEIGHT / 2 : BulletStore.RADIUS;
+
+        g.noStroke();
+        g.beginShape(PConstants.TRIANGLES);
+        for (int i = 0; i < count; i++) {
+            float cx = centers[i * 2];
+            float cy = centers[i * 2 + 1];
+
+            if (stroke) {
+                g.fill(BLACK);
+                disc(g, cx, cy, outer, step);
+            }
+            if (FILL) {
+                g.fill(colors[i]);
+                disc(g, cx, cy, inner, step);
+            }
+        }
+        g.endShape();
+    }
+
+    /**
+     * Sends the whole buffer as one POINTS shape, each Bullet a square as wide as it is
+     *
+     * @param g where to draw the Bullets
+     */
+    private void points(PGraphics g) {
+        if (count == 0) {
+            return;
+        }
+
+        g.strokeWeight(BulletStore.RADIUS * 2);
+        g.strokeCap(PConstants.PROJECT);
+        g.beginShape(PConstants.POINTS);
+        for (int i = 0; i < count; i++) {
+            g.stroke(FILL ? colors[i] : BLACK);
+            g.vertex(centers[i * 2], centers[i * 2 + 1]);
+        }
+        g.endShape();
+        g.strokeCap(PConstants.ROUND);
+        g.noStroke();
+    }
+
+    /**
+     * Draws a map of where the Bullets are instead of the Bullets,
+     * every CELL square with any Bullets in it colored by their average velocity,
+     * and more opaque the more Bullets it holds
+     *
+     * @param g        where to draw the map
+     * @param snapshot the step holding the Bullets to map
+     * @param alpha    how far between the step before and the snapshot's own, from 0 to 1
+     */
+    private void density(PGraphics g, Snapshot snapshot, float alpha) {
+        int columns = (snapshot.getWidth() + CELL - 1) / CELL;
+        int rows = (snapshot.getHeight() + CELL - 1) / CELL;
+        int cells = columns * rows;
+        if (cellCount.length < cells) {
+            cellCount = new int[cells];
+            cellVelocityX = new float[cells];
+            cellVelocityY = new float[cells];
+        }
+        Arrays.fill(cellCount, 0, cells, 0);
+        Arrays.fill(cellVelocityX, 0, cells, 0);
+        Arrays.fill(cellVelocityY, 0, cells, 0);
+
+        int bullets = snapshot.getBulletCount();
+        for (int i = 0; i < bullets; i++) {
+            int column = (int) snapshot.getBulletX(i, alpha) / CELL;
+            int row = (int) snapshot.getBulletY(i, alpha) / CELL;
+            if (column < 0 || column >= columns || row < 0 || row >= rows) {
+                continue;
+            }
+            int cell = row * columns + column;
+            cellCount[cell]++;
+            cellVelocityX[cell] += snapshot.getBulletVelocityX(i);
+            cellVelocityY[cell] += snapshot.getBulletVelocityY(i);
+        }
+
+        g.noStroke();
+        g.beginShape(PConstants.QUADS);
+        for (int cell = 0; cell < cells; cell++) {
+            int n = cellCount[cell];
+            if (n == 0) {
+                continue;
+            }
+            int color = PALETTE.colorFor(cellVelocityX[cell] / n, cellVelocityY[cell] / n);
+            int opacity = Math.min(255, 64 + 48 * n);
+            g.fill((opacity << 24) | (color & 0xFFFFFF));
+
+            float x = (cell % columns) * CELL;
+            float y = (cell / columns) * CELL;
+            g.vertex(x, y);
+            g.vertex(x + CELL, y);
+            g.vertex(x + CELL, y + CELL);
+            g.vertex(x, y + CELL);
+        }
+        g.endShape();
+    }
+
+    /**
+     * Adds one disc to the open shape, as a fan of triangles
+     * using every step-th point of the unit circle
+     */
+    private void disc(PGraphics g, float cx, float cy, float radius, int step) {
+        for (int s = 0; s < SEGMENTS; s += step) {
+            g.vertex(cx, cy);
+            g.vertex(cx + unitX[s] * radius, cy + unitY[s] * radius);
+            g.vertex(cx + unitX[s + step] * radius, cy + unitY[s + step] * radius);
+        }
+    }
+}
@@ -0,0 +1,1227 @@
+package me.paul.triangles;
+
+import processing.core.PVector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Holds every Bullet on the window.
+ * Bullets are not objects, but slots in flat primitive arrays
+ * (position, velocity, acceleration, owner and alive flag),
+ * so a whole frame of bullets can be updated in one tight loop.
+ * <p>
+ * Live bullets are always packed into slots 0 to size() - 1, oldest first.
+ * Bullets that leave the window or outlive their time-to-live
+ * are dropped while the update moves them,
+ * and bullets killed in between are only packed out once per batch,
+ * so removing a bullet costs next to nothing however many go at once
+ * <p>
+ * The store holds at most its limit of live bullets, in arrays that never
+ * grow past the limit plus some slack. Adding a bullet when full
+ * kills the oldest one instead of refusing the new one,
+ * so firing never stops and memory stays flat however long it runs
+ * <p>
+ * Given a TileGrid, bullets are instead kept grouped by the tile they are in,
+ * and each tile is updated as one piece of work, so the pool is split by where bullets are.
+ * Bullets fired since the last update wait at the end, in chunks of their own.
+ * After moving, every piece counts how many of its bullets go to each tile,
+ * which gives every piece its own run of slots in every tile to hand them to.
+ * Each piece then copies its bullets into its runs, with no locks as no two runs overlap.
+ * Bullets that stayed in their tile come first, oldest first, then those that moved in.
+ * Past the limit, the most crowded tile gives up its oldest bullet
+ * @version 1.0
+ */
+
+class BulletStore {
+
+    /**
+     * Defaults for bullet properties
+     * such as radius, magnitude of movement and strength of gravity
+     */
+    static final float RADIUS = 10;
+
+    static final float MAG = 8;
+    static final float GRAVITY_CONST = 10000;
+    static final float GRAVITY_CLAMP_DIST = (float) Math.sqrt(GRAVITY_CONST);
+
+    /**
+     * Starting capacity of the arrays, they grow as needed
+     */
+    private static final int INITIAL_CAPACITY = 256;
+
+    /**
+     * Highest Bullet limit, so the store's capacity still fits in an int
+     */
+    static final int MAX_LIMIT = Integer.MAX_VALUE / 2;
+
+    /**
+     * Steps a bullet lives for, unless set with setTtl()
+     * Set with -Dtriangles.bulletTtl=n, 0 (forever) by default
+     */
+    static final int DEFAULT_TTL = Integer.getInteger("triangles.bulletTtl", 0);
+
+    /**
+     * Kernel bullets are moved with, scalar unless set with setKernel()
+     * Set with -Dtriangles.kernel=vector, which needs the vector build profile
+     * and --add-modules jdk.incubator.vector, and falls back to scalar without them
+     */
+    static final String DEFAULT_KERNEL = System.getProperty("triangles.kernel", ScalarKernel.NAME);
+
+    /**
+     * Class of the vector kernel, only there when built with the vector profile
+     */
+    private static final String VECTOR_KERNEL = "me.paul.triangles.VectorKernel";
+
+    /**
+     * Below this many bullets the update stays on the calling thread
+     * Above it, slots are updated by the pool in chunks of CHUNK_SIZE
+     */
+    private static final int PARALLEL_THRESHOLD = 8192;
+    private static final int CHUNK_SIZE = 4096;
+
+    /**
+     * Reference to the World these bullets live in
+     */
+    private World world;
+
+    /**
+     * Bullet data, one slot per bullet
+     */
+    private float[] x;
+    private float[] y;
+    private float[] vx;
+    private float[] vy;
+    private float[] ax;
+    private float[] ay;
+    private int[] owner;
+    private int[] expires;
+    private boolean[] alive;
+    private int count;
+
+    /**
+     * Most live bullets, and most slots, live or killed but not yet packed out
+     * The slack lets evicted bullets wait for the next packing
+     */
+    private int limit;
+    private int capacity;
+
+    /**
+     * Steps every new bullet lives for, 0 for forever
+     */
+    private int ttl;
+
+    /**
+     * No live bullet is below this slot, where the next eviction starts looking
+     */
+    private int evictFrom;
+
+    /**
+     * Bullets killed since the last packing, and the lowest slot among them
+     */
+    private int dead;
+    private int firstDead;
+
+    /**
+     * Live bullets left in every chunk by a parallel update
+     */
+    private int[] chunkLive;
+
+    /**
+     * Pool that updates chunks of bullets in parallel,
+     * null when updating on a single thread
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * Tasks handed to the pool, reused with every one they split into for every update
+     */
+    private UpdateTask updateTask;
+    private TileTask tileTask;
+
+    /**
+     * World settings for the frame being updated,
+     * read once so the workers don't need to touch the World
+     */
+    private Gravity frameGravity;
+    private float[] gravX;
+    private float[] gravY;
+    private int frameGravityPoints;
+    private BulletFrame frame;
+
+    /**
+     * Cached field for MULTI_POINT gravity
+     */
+    private GravityField field;
+
+    /**
+     * Bullets sub-stepped near the gravity point by the last update
+     */
+    private final AtomicInteger subStepped;
+
+    /**
+     * Tiles bullets are grouped and updated by, null to update by slot
+     * The bullets of tile t are in slots tileStart[t] to tileStart[t + 1],
+     * and those fired since the last update from slot binned on
+     */
+    private TileGrid tiles;
+    private int[] tileStart;
+    private int binned;
+
+    /**
+     * Slot every tile evicts from next, and its live bullets less those evicted
+     */
+    private int[] tileEvict;
+    private int[] tileLive;
+
+    /**
+     * First slot of every piece of a tiled update, each tile and then each chunk of new bullets,
+     * the survivors of each, and how long each took
+     */
+    private int[] sourceFrom;
+    private int[] sourceLive;
+    private long[] sourceTime;
+
+    /**
+     * Tile every survivor of a tiled update moves to
+     */
+    private int[] tileOf;
+
+    /**
+     * Survivors every piece hands to every tile,
+     * then the slot it hands the next one to
+     */
+    private int[][] handoff;
+
+    /**
+     * Arrays survivors are handed off into, swapped with the live ones after
+     */
+    private float[] nextX;
+    private float[] nextY;
+    private float[] nextVx;
+    private float[] nextVy;
+    private int[] nextOwner;
+    private int[] nextExpires;
+
+    /**
+     * Inner loop moving the bullets
+     */
+    private BulletKernel kernel;
+
+    /**
+     * Constructor for a BulletStore object
+     *
+     * @param world_   Reference to the World these bullets live in
+     * @param workers_ amount of threads to update bullets with
+     */
+
+    BulletStore(World world_, int workers_) {
+        world = world_;
+        if (workers_ > 1) {
+            pool = new ForkJoinPool(workers_);
+            updateTask = new UpdateTask(null);
+            tileTask = new TileTask(null);
+        }
+        gravX = new float[1];
+        gravY = new float[1];
+        field = new GravityField();
+        subStepped = new AtomicInteger();
+        frame = new BulletFrame();
+        kernel = loadKernel(DEFAULT_KERNEL);
+
+        x = new float[INITIAL_CAPACITY];
+        y = new float[INITIAL_CAPACITY];
+        vx = new float[INITIAL_CAPACITY];
+        vy = new float[INITIAL_CAPACITY];
+        ax = new float[INITIAL_CAPACITY];
+        ay = new float[INITIAL_CAPACITY];
+        owner = new int[INITIAL_CAPACITY];
+        expires = new int[INITIAL_CAPACITY];
+        alive = new boolean[INITIAL_CAPACITY];
+        count = 0;
+        dead = 0;
+        evictFrom = 0;
+        ttl = DEFAULT_TTL;
+        setLimit(World.BULLET_LIMIT);
+        firstDead = Integer.MAX_VALUE;
+        chunkLive = new int[0];
+        sourceFrom = new int[0];
+        sourceLive = new int[0];
+        sourceTime = new long[0];
+        tileOf = new int[0];
+        handoff = new int[0][];
+        setTiles(TileGrid.parse(TileGrid.DEFAULT_TILES));
+    }
+
+    /**
+     * Sets the tiles bullets are updated by
+     * Every bullet is sorted into its tile on the next update
+     *
+     * @param tiles_ the tiles, or null to update by slot
+     */
+    void setTiles(TileGrid tiles_) {
+        removeDead();
+        tiles = tiles_;
+        if (tiles != null) {
+            tileStart = new int[tiles.getCount() + 1];
+            tileEvict = new int[tiles.getCount()];
+            tileLive = new int[tiles.getCount()];
+        }
+        binned = 0;
+        //  Made again for the new amount of tiles on the next update
+        sourceFrom = new int[0];
+    }
+
+    TileGrid getTiles() {
+        return tiles;
+    }
+
+    /**
+     * Sets the most live bullets, evicting the oldest if there are more
+     *
+     * @param limit_ most live bullets, at least 1
+     */
+    void setLimit(int limit_) {
+        limit = Math.min(Math.max(1, limit_), MAX_LIMIT);
+        capacity = limit + Math.max(limit / 4, 64);
+
+        while (count - dead > limit) {
+            evictOldest();
+        }
+        removeDead();
+        if (x.length > capacity) {
+            resize(capacity);
+        }
+    }
+
+    int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Sets how long new bullets live for
+     *
+     * @param ttl_ steps a bullet lives for, 0 for forever
+     */
+    void setTtl(int ttl_) {
+        ttl = Math.max(0, ttl_);
+    }
+
+    int getTtl() {
+        return ttl;
+    }
+
+    /**
+     * Adds a bullet to the store, evicting the oldest one if full
+     *
+     * @param x_      horizontal location of the new bullet
+     * @param y_      vertical location of the new bullet
+     * @param dirX    horizontal component of the (unit) heading
+     * @param dirY    vertical component of the (unit) heading
+     * @param owner_  id of the Triangle that fired the bullet
+     */
+    void add(float x_, float y_, float dirX, float dirY, int owner_) {
+        if (count - dead >= limit) {
+            evictOldest();
+        }
+        if (count == x.length) {
+            if (x.length < capacity) {
+                resize(Math.min(x.length * 2, capacity));
+            } else {
+                //  Out of slack, pack out the evicted and killed bullets now
+                removeDead();
+            }
+        }
+        x[count] = x_;
+        y[count] = y_;
+        vx[count] = dirX * MAG;
+        vy[count] = dirY * MAG;
+        ax[count] = 0;
+        ay[count] = 0;
+        owner[count] = owner_;
+        expires[count] = ttl == 0 ? Integer.MAX_VALUE : (int) Math.min(Integer.MAX_VALUE, (long) world.getFrameCount() + ttl);
+        alive[count] = true;
+        count++;
+    }
+
+    /**
+     * Kills the oldest live bullet
+     * Bullets are kept oldest first, so that is the first one still alive
+     */
+    private void evictOldest() {
+        if (tiles != null) {
+            evictCrowded();
+            return;
+        }
+        while (!alive[evictFrom]) {
+            evictFrom++;
+        }
+        kill(evictFrom);
+    }
+
+    /**
+     * Kills the oldest live bullet of the most crowded tile,
+     * or the oldest new bullet if every tile is empty
+     */
+    private void evictCrowded() {
+        while (true) {
+            int crowded = -1;
+            int most = 0;
+            for (int t = 0; t < tileLive.length; t++) {
+                if (tileLive[t] > most) {
+                    most = tileLive[t];
+                    crowded = t;
+                }
+            }
+
+            if (crowded < 0) {
+                int i = Math.max(evictFrom, binned);
+                while (!alive[i]) {
+                    i++;
+                }
+                kill(i);
+                evictFrom = i + 1;
+                return;
+            }
+
+            int i = tileEvict[crowded];
+            int end = tileStart[crowded + 1];
+            while (i < end && !alive[i]) {
+                i++;
+            }
+            if (i < end) {
+                kill(i);
+                tileEvict[crowded] = i + 1;
+                tileLive[crowded]--;
+                return;
+            }
+            //  Its bullets were all hit since the update
+            tileLive[crowded] = 0;
+        }
+    }
+
+    /**
+     * Updates every bullet, like location and velocity,
+     * packing the surviving bullets together as it goes
+     * <p>
+     * Bullets never interact, so with more than one worker
+     * the slots are split into chunks and updated across the pool.
+     * Each chunk packs its own survivors to its front,
+     * and the chunks are then slid together
+     */
+    void update() {
+        prepareFrame();
+        subStepped.set(0);
+
+        if (tiles != null) {
+            updateTiles();
+        } else if (pool == null || count < PARALLEL_THRESHOLD) {
+            count = updateRange(0, count);
+        } else {
+            int chunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            if (chunkLive.length < chunks) {
+                chunkLive = new int[chunks * 2];
+            }
+            runOnPool(updateTask.set(0, chunks));
+            joinChunks(chunks);
+        }
+
+        dead = 0;
+        firstDead = Integer.MAX_VALUE;
+        evictFrom = 0;
+    }
+
+    /**
+     * Updates every tile, and every chunk of bullets fired since the last update, as one piece each,
+     * then hands every survivor to the tile it is now in
+     */
+    private void updateTiles() {
+        int tileCount = tiles.getCount();
+        tiles.setSize(world.getWidth(), world.getHeight());
+
+        //  Every tile is a piece, then every chunk of new bullets
+        int chunks = (count - binned + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        int sources = tileCount + chunks;
+        if (sourceFrom.length < sources + 1) {
+            sourceFrom = new int[(sources + 1) * 2];
+            sourceLive = new int[sources * 2];
+            sourceTime = new long[sources * 2];
+            handoff = new int[sources * 2][tileCount];
+        }
+        System.arraycopy(tileStart, 0, sourceFrom, 0, tileCount);
+        for (int c = 0; c < chunks; c++) {
+            sourceFrom[tileCount + c] = binned + c * CHUNK_SIZE;
+        }
+        sourceFrom[sources] = count;
+
+        if (tileOf.length < x.length) {
+            tileOf = new int[x.length];
+        }
+        if (nextX == null || nextX.length != x.length) {
+            nextX = new float[x.length];
+            nextY = new float[x.length];
+            nextVx = new float[x.length];
+            nextVy = new float[x.length];
+            nextOwner = new int[x.length];
+            nextExpires = new int[x.length];
+        }
+
+        runTiles(sources, false);
+
+        //  Give every piece its run of slots in every tile,
+        //  the bullets that stayed in a tile first
+        int slot = 0;
+        int migrated = 0;
+        for (int d = 0; d < tileCount; d++) {
+            tileStart[d] = slot;
+            slot = claim(d, d, slot);
+            for (int s = 0; s < sources; s++) {
+                if (s != d) {
+                    if (s < tileCount) {
+                        migrated += handoff[s][d];
+                    }
+                    slot = claim(s, d, slot);
+                }
+            }
+            tiles.setBullets(d, slot - tileStart[d]);
+        }
+        tileStart[tileCount] = slot;
+
+        runTiles(sources, true);
+
+        float[] f = x;
+        x = nextX;
+        nextX = f;
+        f = y;
+        y = nextY;
+        nextY = f;
+        f = vx;
+        vx = nextVx;
+        nextVx = f;
+        f = vy;
+        vy = nextVy;
+        nextVy = f;
+        int[] n = owner;
+        owner = nextOwner;
+        nextOwner = n;
+        n = expires;
+        expires = nextExpires;
+        nextExpires = n;
+        Arrays.fill(alive, 0, slot, true);
+        count = slot;
+        binned = slot;
+
+        for (int t = 0; t < tileCount; t++) {
+            tileEvict[t] = tileStart[t];
+            tileLive[t] = tiles.getBullets(t);
+            tiles.setTime(t, sourceTime[t]);
+        }
+        tiles.setMigrated(migrated);
+    }
+
+    /**
+     * Turns the amount of bullets a piece hands to a tile into the first slot it hands them to
+     *
+     * @param s    the piece
+     * @param d    the tile
+     * @param slot first free slot
+     * @return first free slot after the run
+     */
+    private int claim(int s, int d, int slot) {
+        int n = handoff[s][d];
+        handoff[s][d] = slot;
+        return slot + n;
+    }
+
+    /**
+     * Runs one half of a tiled update on every piece, on the pool if there is one
+     *
+     * @param sources amount of pieces
+     * @param scatter false to move and count, true to hand off
+     */
+    private void runTiles(int sources, boolean scatter) {
+        if (pool == null) {
+            for (int s = 0; s < sources; s++) {
+                runTile(s, scatter);
+            }
+        } else {
+            runOnPool(tileTask.set(0, sources, scatter));
+        }
+    }
+
+    private void runTile(int s, boolean scatter) {
+        long start = System.nanoTime();
+        int from = sourceFrom[s];
+        if (!scatter) {
+            int live = updateRange(from, sourceFrom[s + 1]);
+            int[] counts = handoff[s];
+            Arrays.fill(counts, 0);
+            for (int i = from; i < from + live; i++) {
+                int d = tiles.tileOf(x[i], y[i]);
+                tileOf[i] = d;
+                counts[d]++;
+            }
+            sourceLive[s] = live;
+            sourceTime[s] = System.nanoTime() - start;
+        } else {
+            int[] next = handoff[s];
+            for (int i = from; i < from + sourceLive[s]; i++) {
+                int j = next[tileOf[i]]++;
+                nextX[j] = x[i];
+                nextY[j] = y[i];
+                nextVx[j] = vx[i];
+                nextVy[j] = vy[i];
+                nextOwner[j] = owner[i];
+                nextExpires[j] = expires[i];
+            }
+            sourceTime[s] += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Slides the survivors of every chunk down against the chunk before
+     *
+     * @param chunks amount of chunks updated
+     */
+    private void joinChunks(int chunks) {
+        int live = chunkLive[0];
+        for (int c = 1; c < chunks; c++) {
+            int from = c * CHUNK_SIZE;
+            int n = chunkLive[c];
+            if (live != from && n > 0) {
+                System.arraycopy(x, from, x, live, n);
+                System.arraycopy(y, from, y, live, n);
+                System.arraycopy(vx, from, vx, live, n);
+                System.arraycopy(vy, from, vy, live, n);
+                System.arraycopy(owner, from, owner, live, n);
+                System.arraycopy(expires, from, expires, live, n);
+                System.arraycopy(alive, from, alive, live, n);
+            }
+            live += n;
+        }
+        count = live;
+    }
+
+    /**
+     * Reads everything a frame of updates needs from the World,
+     * so the workers only ever touch this store
+     */
+    private void prepareFrame() {
+        frameGravity = world.getGravityMode();
+
+        if (frameGravity == Gravity.MULTI_POINT) {
+            ArrayList<PVector> gravList = world.getGravityList();
+            frameGravityPoints = gravList.size();
+            if (gravX.length < frameGravityPoints) {
+                gravX = new float[frameGravityPoints * 2];
+                gravY = new float[frameGravityPoints * 2];
+            }
+            for (int p = 0; p < frameGravityPoints; p++) {
+                gravX[p] = gravList.get(p).x;
+                gravY[p] = gravList.get(p).y;
+            }
+            field.prepare(gravX, gravY, frameGravityPoints, world.getGravityVersion(), world.getWidth(), world.getHeight());
+        } else if (frameGravity != Gravity.OFF) {
+            PVector gravityPoint = world.getGravityPoint();
+            frameGravityPoints = 1;
+            gravX[0] = gravityPoint.x;
+            gravY[0] = gravityPoint.y;
+        } else {
+            frameGravityPoints = 0;
+        }
+
+        frame.set(frameGravity != Gravity.OFF ? world.getDecay() : 1, world.getBounceMode(),
+                world.getWidth(), world.getHeight(), world.getBorderWeight(),
+                world.getFrameCount(), world.getOldestTriangleId());
+    }
+
+    /**
+     * Updates the bullets in a range of slots,
+     * packing the survivors to the front of the range
+     *
+     * @param from first slot to update
+     * @param to   slot after the last one to update
+     * @return amount of bullets left in the range
+     */
+    private int updateRange(int from, int to) {
+        Gravity gm = frameGravity;
+
+        if (gm == Gravity.OFF) {
+            Arrays.fill(ax, from, to, 0);
+            Arrays.fill(ay, from, to, 0);
+        } else if (gm == Gravity.SIMPLE) {
+            float gx = gravX[0];
+            float gy = gravY[0];
+            for (int i = from; i < to; i++) {
+                float dx = gx - x[i];
+                float dy = gy - y[i];
+                float dist = (float) Math.sqrt(dx * dx + dy * dy);
+                if (dist > 0) {
+                    ax[i] = dx / dist;
+                    ay[i] = dy / dist;
+                } else {
+                    ax[i] = 0;
+                    ay[i] = 0;
+                }
+            }
+        } else if (gm == Gravity.MULTI_POINT) {
+            field.sample(x, y, ax, ay, from, to);
+        } else {
+            int near = SubStepper.integrate(x, y, vx, vy, ax, ay, from, to, gravX[0], gravY[0], frame.getDecay());
+            if (near > 0) {
+                subStepped.addAndGet(near);
+            }
+        }
+
+        return kernel.integrate(x, y, vx, vy, ax, ay, owner, expires, alive, from, to, frame);
+    }
+
+    /**
+     * Strength of gravity at a distance from one of the MULTI_POINT gravity points
+     * Falls off with the square of distance, but is clamped to 1 close to the point
+     * TRUE and POINT gravity are not clamped, see SubStepper
+     *
+     * @param dist distance from the gravity point
+     * @return magnitude of acceleration towards the point
+     */
+    static float gravity(float dist) {
+        if (dist > GRAVITY_CLAMP_DIST) {
+            return GRAVITY_CONST / (dist * dist);
+        }
+        return 1;
+    }
+
+    /**
+     * Runs a task on the pool and waits for it to finish.
+     * pool.invoke() makes a node to wait on whenever a worker has taken the task,
+     * so the calling thread parks itself instead, and the task wakes it when done
+     *
+     * @param task the task, not yet run
+     */
+    private void runOnPool(PoolTask task) {
+        task.waiter = Thread.currentThread();
+        task.finished = false;
+        pool.execute(task);
+        while (!task.finished) {
+            LockSupport.park(this);
+        }
+        //  Finished is set just before the task is marked done
+        while (!task.isDone()) {
+            Thread.yield();
+        }
+        task.waiter = null;
+
+        if (task.isCompletedAbnormally()) {
+            Throwable e = task.getException();
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * A piece of an update on the pool, split in half until it is down to one piece.
+     * Each half finishes its parent when the other is done too, so no worker ever waits on another,
+     * as waiting makes a node for every wait.
+     * The halves are made the first time a task splits and reused from then on,
+     * so the same amount of pieces makes no new tasks
+     */
+    private abstract static class PoolTask extends CountedCompleter<Void> {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Thread waiting on this task, only set on the task handed to the pool
+         */
+        transient Thread waiter;
+        volatile boolean finished;
+
+        private int from;
+        private int to;
+        private PoolTask low;
+        private PoolTask high;
+
+        PoolTask(PoolTask parent) {
+            super(parent);
+        }
+
+        /**
+         * Readies this finished task to run again, on a new range
+         */
+        void reset(int from_, int to_) {
+            reinitialize();
+            setPendingCount(0);
+            from = from_;
+            to = to_;
+        }
+
+        @Override
+        public final void compute() {
+            if (to - from == 1) {
+                run(from);
+                tryComplete();
+            } else {
+                int mid = (from + to) >>> 1;
+                if (low == null) {
+                    low = split();
+                    high = split();
+                }
+                low.reset(from, mid);
+                high.reset(mid, to);
+                setPendingCount(1);
+                high.fork();
+                low.compute();
+            }
+        }
+
+        @Override
+        public final void onCompletion(CountedCompleter<?> caller) {
+            wake();
+        }
+
+        @Override
+        public final boolean onExceptionalCompletion(Throwable e, CountedCompleter<?> caller) {
+            wake();
+            return true;
+        }
+
+        private void wake() {
+            Thread waiting = waiter;
+            if (waiting != null) {
+                finished = true;
+                LockSupport.unpark(waiting);
+            }
+        }
+
+        /**
+         * Makes a task for one half of this one
+         */
+        abstract PoolTask split();
+
+        /**
+         * Does the work of one piece
+         */
+        abstract void run(int piece);
+    }
+
+    /**
+     * Updates a range of chunks on the pool
+     */
+    private class UpdateTask extends PoolTask {
+
+        private static final long serialVersionUID = 1L;
+
+        UpdateTask(UpdateTask parent) {
+            super(parent);
+        }
+
+        /**
+         * Readies this finished task to run again, on a new range
+         *
+         * @return this task
+         */
+        UpdateTask set(int fromChunk, int toChunk) {
+            reset(fromChunk, toChunk);
+            return this;
+        }
+
+        @Override
+        PoolTask split() {
+            return new UpdateTask(this);
+        }
+
+        @Override
+        void run(int chunk) {
+            int from = chunk * CHUNK_SIZE;
+            chunkLive[chunk] = updateRange(from, Math.min(count, from + CHUNK_SIZE));
+        }
+    }
+
+    /**
+     * Runs one half of a tiled update on a range of pieces on the pool
+     */
+    private class TileTask extends PoolTask {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Whether to hand off rather than move and count, only set on the task handed to the pool
+         */
+        private boolean scatter;
+
+        TileTask(TileTask parent) {
+            super(parent);
+        }
+
+        /**
+         * Readies this finished task to run again, on a new range
+         *
+         * @return this task
+         */
+        TileTask set(int fromSource, int toSource, boolean scatter_) {
+            reset(fromSource, toSource);
+            scatter = scatter_;
+            return this;
+        }
+
+        @Override
+        PoolTask split() {
+            return new TileTask(this);
+        }
+
+        @Override
+        void run(int source) {
+            runTile(source, ((TileTask) getRoot()).scatter);
+        }
+    }
+
+    /**
+     * Loads a BulletKernel by name
+     * The vector kernel is looked up by name, as it is only built with the vector profile,
+     * and falls back to the scalar kernel if it is missing or the JVM cannot run it
+     *
+     * @param name scalar or vector
+     * @return the kernel
+     */
+    static BulletKernel loadKernel(String name) {
+        if (name.equals("vector")) {
+            try {
+                return (BulletKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                System.err.println("Vector kernel unavailable, using scalar: " + e);
+            }
+        } else if (!name.equals(ScalarKernel.NAME)) {
+            System.err.println("Unknown kernel " + name + ", using scalar");
+        }
+        return new ScalarKernel();
+    }
+
+    void setKernel(BulletKernel kernel_) {
+        kernel = kernel_;
+    }
+
+    BulletKernel getKernel() {
+        return kernel;
+    }
+
+    /**
+     * Removes every bullet fired by any of a set of Triangles,
+     * in one pass however many Triangles there are
+     *
+     * @param owners ids of the Triangles, sorted in place
+     * @param n      amount of ids
+     */
+    void removeOwners(int[] owners, int n) {
+        if (n == 0) {
+            return;
+        }
+        Arrays.sort(owners, 0, n);
+        for (int i = 0; i < count; i++) {
+            if (Arrays.binarySearch(owners, 0, n, owner[i]) >= 0) {
+                kill(i);
+            }
+        }
+        removeDead();
+    }
+
+    /**
+     * Marks a bullet for removal, on the next removeDead() or update()
+     *
+     * @param i slot of the bullet
+     */
+    void kill(int i) {
+        if (alive[i]) {
+            alive[i] = false;
+            dead++;
+            if (i < firstDead) {
+                firstDead = i;
+            }
+        }
+    }
+
+    /**
+     * Packs all live bullets to the front of the arrays, keeping their order
+     * Only the slots from the first killed bullet on are touched,
+     * and nothing at all if none were killed.
+     * With tiles, every tile is packed to the front of its own slots
+     */
+    void removeDead() {
+        if (dead == 0) {
+            return;
+        }
+
+        if (tiles != null) {
+            int live = 0;
+            int from = tileStart[0];
+            for (int t = 0; t < tileLive.length; t++) {
+                int to = tileStart[t + 1];
+                tileStart[t] = live;
+                tileEvict[t] = live;
+                live = packRange(from, to, live);
+                tileLive[t] = live - tileStart[t];
+                from = to;
+            }
+            tileStart[tileLive.length] = live;
+            int newBinned = live;
+            count = packRange(binned, count, live);
+            binned = newBinned;
+        } else {
+            count = packRange(firstDead, count, firstDead);
+        }
+        dead = 0;
+        firstDead = Integer.MAX_VALUE;
+        evictFrom = 0;
+    }
+
+    /**
+     * Packs the live bullets of a range of slots down to a slot, keeping their order
+     *
+     * @param from first slot to pack
+     * @param to   slot after the last one to pack
+     * @param live slot the first live bullet goes to, at most from
+     * @return slot after the last live bullet
+     */
+    private int packRange(int from, int to, int live) {
+        for (int i = from; i < to; i++) {
+            if (alive[i]) {
+                x[live] = x[i];
+                y[live] = y[i];
+                vx[live] = vx[i];
+                vy[live] = vy[i];
+                owner[live] = owner[i];
+                expires[live] = expires[i];
+                alive[live] = true;
+                live++;
+            }
+        }
+        return live;
+    }
+
+    void clear() {
+        count = 0;
+        dead = 0;
+        firstDead = Integer.MAX_VALUE;
+        evictFrom = 0;
+        if (tiles != null) {
+            Arrays.fill(tileStart, 0);
+            Arrays.fill(tileLive, 0);
+        }
+        binned = 0;
+    }
+
+    /**
+     * Getter method for the size of every live bullet in a checkpoint
+     *
+     * @return size, in bytes
+     */
+    int getCheckpointBytes() {
+        return 12 + getLiveCount() * 24;
+    }
+
+    /**
+     * Writes every live bullet to a checkpoint, a whole column at a time
+     * Bullets killed since the last packing are packed out first
+     *
+     * @param out where to write, with room for getCheckpointBytes()
+     */
+    void write(ByteBuffer out) {
+        removeDead();
+        out.putInt(limit);
+        out.putInt(ttl);
+        out.putInt(count);
+
+        out.asFloatBuffer().put(x, 0, count);
+        out.position(out.position() + count * 4);
+        out.asFloatBuffer().put(y, 0, count);
+        out.position(out.position() + count * 4);
+        out.asFloatBuffer().put(vx, 0, count);
+        out.position(out.position() + count * 4);
+        out.asFloatBuffer().put(vy, 0, count);
+        out.position(out.position() + count * 4);
+        out.asIntBuffer().put(owner, 0, count);
+        out.position(out.position() + count * 4);
+        out.asIntBuffer().put(expires, 0, count);
+        out.position(out.position() + count * 4);
+    }
+
+    /**
+     * Checks the bullets in a checkpoint can be read, without reading them
+     *
+     * @param in where to read from, left after the bullets
+     * @throws IOException if the limits are out of range, or there are more bullets than room or bytes for
+     */
+    static void check(ByteBuffer in) throws IOException {
+        int limit_ = in.getInt();
+        in.getInt();
+        int n = in.getInt();
+        if (limit_ > MAX_LIMIT) {
+            throw new IOException("Bullet limit of " + limit_);
+        }
+        int limit = Math.max(1, limit_);
+        if (n < 0 || n > limit + Math.max(limit / 4, 64) || n > in.remaining() / 24) {
+            throw new IOException(n + " Bullets");
+        }
+        in.position(in.position() + n * 24);
+    }
+
+    /**
+     * Replaces every bullet with those in a checkpoint
+     * Only to be called once check() has passed on it
+     *
+     * @param in where to read from
+     */
+    void read(ByteBuffer in) {
+        clear();
+        setLimit(in.getInt());
+        setTtl(in.getInt());
+        int n = in.getInt();
+        if (x.length < n) {
+            resize(n);
+        }
+
+        in.asFloatBuffer().get(x, 0, n);
+        in.position(in.position() + n * 4);
+        in.asFloatBuffer().get(y, 0, n);
+        in.position(in.position() + n * 4);
+        in.asFloatBuffer().get(vx, 0, n);
+        in.position(in.position() + n * 4);
+        in.asFloatBuffer().get(vy, 0, n);
+        in.position(in.position() + n * 4);
+        in.asIntBuffer().get(owner, 0, n);
+        in.position(in.position() + n * 4);
+        in.asIntBuffer().get(expires, 0, n);
+        in.position(in.position() + n * 4);
+
+        //  Acceleration is worked out afresh every update
+        Arrays.fill(ax, 0, n, 0);
+        Arrays.fill(ay, 0, n, 0);
+        Arrays.fill(alive, 0, n, true);
+        count = n;
+    }
+
+    /**
+     * Getter method for the amount of slots in use
+     * Right after an update every one of them is live,
+     * otherwise some may have been killed but not packed out yet
+     *
+     * @return amount of slots in use
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * Getter method for the amount of live bullets
+     *
+     * @return amount of live bullets
+     */
+    int getLiveCount() {
+        return count - dead;
+    }
+
+    /**
+     * Getter method for the amount of threads updating bullets
+     *
+     * @return amount of threads
+     */
+    int getWorkers() {
+        return pool == null ? 1 : pool.getParallelism();
+    }
+
+    /**
+     * @return whether a thread is one of the pool's workers updating bullets
+     */
+    boolean isWorker(Thread thread) {
+        return pool != null && thread instanceof ForkJoinWorkerThread
+                && ((ForkJoinWorkerThread) thread).getPool() == pool;
+    }
+
+    /**
+     * @return bullets moved in several steps near the gravity point by the last update
+     */
+    int getSubStepped() {
+        return subStepped.get();
+    }
+
+    float getX(int i) {
+        return x[i];
+    }
+
+    float getY(int i) {
+        return y[i];
+    }
+
+    float getVelocityX(int i) {
+        return vx[i];
+    }
+
+    float getVelocityY(int i) {
+        return vy[i];
+    }
+
+    int getOwner(int i) {
+        return owner[i];
+    }
+
+    /**
+     * Copies the location and velocity of every live bullet out, packed,
+     * into the columns of a Snapshot's Arena, which must fit size() bullets.
+     * Every run of live bullets is copied a whole column at a time
+     *
+     * @param arena filled with the location and velocity of every bullet
+     * @return amount of bullets copied
+     */
+    int copyTo(Arena arena) {
+        int n = 0;
+        int i = 0;
+        while (i < count) {
+            //  Skip bullets killed since the last packing
+            while (i < count && !alive[i]) {
+                i++;
+            }
+            int run = i;
+            while (i < count && alive[i]) {
+                i++;
+            }
+            int length = i - run;
+            if (length > 0) {
+                arena.putFloats(Snapshot.BULLET_X, n, x, run, length);
+                arena.putFloats(Snapshot.BULLET_Y, n, y, run, length);
+                arena.putFloats(Snapshot.BULLET_VX, n, vx, run, length);
+                arena.putFloats(Snapshot.BULLET_VY, n, vy, run, length);
+                n += length;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Changes the length of every array, keeping the slots in use
+     *
+     * @param length new length, at least size()
+     */
+    private void resize(int length) {
+        x = Arrays.copyOf(x, length);
+        y = Arrays.copyOf(y, length);
+        vx = Arrays.copyOf(vx, length);
+        vy = Arrays.copyOf(vy, length);
+        ax = Arrays.copyOf(ax, length);
+        ay = Arrays.copyOf(ay, length);
+        owner = Arrays.copyOf(owner, length);
+        expires = Arrays.copyOf(expires, length);
+        alive = Arrays.copyOf(alive, length);
+    }
+}
@@ -0,0 +1,120 @@
+package me.paul.triangles;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Saves the whole state of a World to a binary file, and restores it.
+ * The file is mapped into memory and written or read in one pass,
+ * Bullets a whole column at a time, so even a World of 100 000 Bullets
+ * takes a few milliseconds either way.
+ * <p>
+ * After a short header (magic, version, and the length of the file)
+ * comes the World itself, see World.write().
+ * Everything is little-endian.
+ * Held keys and buttons are not saved, only the World.
+ * <p>
+ * A restore reads and checks the whole file before replacing anything,
+ * so a damaged file fails with an IOException and leaves the World as it was
+ * @version 1.0
+ */
+
+class Checkpoint {
+
+    /**
+     * Start of every checkpoint, and its format version
+     */
+    static final int MAGIC = 0x5452434B;
+    static final short VERSION = 1;
+
+    /**
+     * Size of the header, in bytes
+     */
+    private static final int HEADER_BYTES = 16;
+
+    /**
+     * File the window saves to and restores from on a key press
+     * Set with -Dtriangles.checkpoint=path, triangles.ckpt by default
+     */
+    static final String DEFAULT_PATH = System.getProperty("triangles.checkpoint", "triangles.ckpt");
+
+    /**
+     * File to restore from on startup
+     * Set with -Dtriangles.restore=path, off by default
+     */
+    static final String DEFAULT_RESTORE = System.getProperty("triangles.restore");
+
+    private Checkpoint() {
+    }
+
+    /**
+     * Writes a World to a file
+     *
+     * @param world the World to save
+     * @param path  file to write to, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    static void save(World world, String path) throws IOException {
+        long length = (long) HEADER_BYTES + world.getCheckpointBytes();
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("World too big to checkpoint, " + length + " bytes");
+        }
+
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            out.order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(MAGIC);
+            out.putShort(VERSION);
+            out.putShort((short) 0);
+            out.putLong(length);
+            world.write(out);
+        }
+    }
+
+    /**
+     * Replaces the state of a World with a file
+     *
+     * @param world the World to restore into
+     * @param path  file to read from
+     * @throws IOException if the file cannot be read, or is not a checkpoint this version knows,
+     *                     in which case the World is left as it was
+     */
+    static void restore(World world, String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException(path + " is not a checkpoint");
+            }
+
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            in.order(ByteOrder.LITTLE_ENDIAN);
+            if (in.getInt() != MAGIC) {
+                throw new IOException(path + " is not a checkpoint");
+            }
+            short version = in.getShort();
+            if (version != VERSION) {
+                throw new IOException(path + " is checkpoint version " + version + ", only " + VERSION + " is supported");
+            }
+            in.getShort();
+            if (in.getLong() != size) {
+                throw new IOException(path + " is cut short");
+            }
+
+            try {
+                world.read(in);
+            } catch (BufferUnderflowException e) {
+                throw new IOException(path + " is cut short", e);
+            } catch (RuntimeException e) {
+                throw new IOException(path + " is not a valid checkpoint", e);
+            }
+        }
+    }
+}
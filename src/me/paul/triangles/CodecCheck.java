@@ -0,0 +1,130 @@
+package me.paul.triangles;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Checks that StreamCodec reads back what it writes,
+ * and turns away damaged frames with an IllegalStateException, as a StreamClient expects,
+ * rather than sizing anything for them.
+ * A short frame claiming two billion gravity points, Triangles or Bullets
+ * must be caught before its arrays are made, as running out of heap is an Error the client does not survive.
+ * <p>
+ * Prints one "case: ok" or "case: FAIL ..." per line, then the result,
+ * exiting with 1 if any case failed.
+ * <p>
+ * Usage: CodecCheck
+ * @version 1.0
+ */
+
+class CodecCheck {
+
+    private static boolean failed;
+
+    public static void main(String[] args) {
+        roundTrip();
+
+        //  Counts far past what is left of a 20 byte frame
+        rejects("huge_gravity", StreamCodec.FLAG_GRAVITY, Integer.MAX_VALUE, 0, 0);
+        rejects("huge_triangles", 0, 0, Integer.MAX_VALUE, 0);
+        rejects("huge_bullets", 0, 0, 0, Integer.MAX_VALUE);
+        rejects("negative_triangles", 0, 0, -1, 0);
+        rejects("negative_bullets", 0, 0, 0, -1);
+
+        System.out.printf("result: %s%n", failed ? "FAIL" : "PASS");
+        System.exit(failed ? 1 : 0);
+    }
+
+    /**
+     * Sends a World through a key frame then a delta frame, and compares what comes out
+     */
+    private static void roundTrip() {
+        World world = new World(800, 600, 1);
+        world.addGravityPoint(400, 300);
+        for (int i = 0; i < 20; i++) {
+            world.addTriangle(40 + i * 36, 300);
+        }
+        InputState input = new InputState();
+        StreamCodec sender = new StreamCodec();
+        StreamCodec receiver = new StreamCodec();
+        Snapshot sent = new Snapshot();
+        Snapshot last = new Snapshot();
+        Snapshot received = new Snapshot();
+
+        for (int frame = 0; frame < 2; frame++) {
+            world.step(input);
+            world.fireAll();
+            sent.capture(world, last, System.nanoTime());
+            ByteBuffer delta = ByteBuffer.allocate(StreamCodec.maxBytes(sent)).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer key = ByteBuffer.allocate(StreamCodec.maxBytes(sent)).order(ByteOrder.LITTLE_ENDIAN);
+            sender.encode(sent, delta, key);
+            delta.flip();
+            key.flip();
+            receiver.decode(frame == 0 ? key : delta, received, 0);
+
+            String name = frame == 0 ? "round_trip_key" : "round_trip_delta";
+            if (received.getTriangleCount() != sent.getTriangleCount()
+                    || received.getBulletCount() != sent.getBulletCount()
+                    || received.getGravityCount() != sent.getGravityCount()) {
+                fail(name, received.getTriangleCount() + " Triangles, " + received.getBulletCount() + " Bullets");
+                continue;
+            }
+            float error = 0;
+            for (int i = 0; i < sent.getBulletCount(); i++) {
+                error = Math.max(error, Math.abs(received.getBulletX(i, 1) - sent.getBulletX(i, 1)));
+            }
+            for (int i = 0; i < sent.getTriangleCount(); i++) {
+                error = Math.max(error, Math.abs(received.getTriangleX(i, 1) - sent.getTriangleX(i, 1)));
+            }
+            if (error > 1 / StreamCodec.POSITION_SCALE) {
+                fail(name, "off by " + error);
+            } else {
+                System.out.printf("%s: ok%n", name);
+            }
+
+            Snapshot done = last;
+            last = sent;
+            sent = done;
+        }
+    }
+
+    /**
+     * Builds a key frame with the counts given and nothing after them, and checks it is turned away
+     */
+    private static void rejects(String name, int flags, int gravity, int triangles, int bullets) {
+        ByteBuffer frame = ByteBuffer.allocate(20).order(ByteOrder.LITTLE_ENDIAN);
+        frame.put(StreamCodec.KEY);
+        StreamCodec.putVarint(frame, 0);
+        StreamCodec.putVarint(frame, 800);
+        StreamCodec.putVarint(frame, 600);
+        StreamCodec.putVarint(frame, 1);
+        frame.put((byte) flags);
+        frame.put((byte) Gravity.OFF.ordinal());
+        frame.putFloat(1);
+        if ((flags & StreamCodec.FLAG_GRAVITY) != 0) {
+            StreamCodec.putVarint(frame, gravity);
+        } else {
+            StreamCodec.putVarint(frame, triangles);
+            if (triangles == 0) {
+                StreamCodec.putVarint(frame, bullets);
+            }
+        }
+        frame.flip();
+
+        try {
+            new StreamCodec().decode(frame, new Snapshot(), 0);
+            fail(name, "was read");
+        } catch (IllegalStateException e) {
+            System.out.printf("%s: ok%n", name);
+        } catch (Throwable e) {
+            fail(name, e.toString());
+        }
+    }
+
+    private static void fail(String name, String why) {
+        System.out.printf("%s: FAIL %s%n", name, why);
+        failed = true;
+    }
+}
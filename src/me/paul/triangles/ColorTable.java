@@ -0,0 +1,152 @@
+package me.paul.triangles;
+
+import java.awt.Color;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Colors of a Triangle or Bullet by its velocity, worked out once up front.
+ * Hue follows the heading and saturation can follow the speed,
+ * each cut into buckets, with the packed ARGB color of every pair of buckets
+ * held in one table.
+ * <p>
+ * Looking a color up needs no trig and no HSB conversion:
+ * the heading bucket comes from a "diamond angle", |y| / (|x| + |y|) placed by quadrant,
+ * which goes round in step with the true angle if not quite evenly.
+ * Each bucket's color is worked out at the true angle of its middle,
+ * so no heading is ever more than half a bucket off
+ * @version 1.0
+ */
+
+class ColorTable {
+
+    /**
+     * Amount of heading buckets, a power of two, about 0.7 degrees each
+     */
+    static final int HUE_BUCKETS = 512;
+
+    /**
+     * Amount of speed buckets when saturation follows speed,
+     * and the speed at which saturation is full
+     */
+    static final int SPEED_BUCKETS = 64;
+    static final float MAX_SPEED = 50;
+
+    /**
+     * Packed ARGB colors, every heading bucket of the first speed bucket, then the next
+     */
+    private final int[] table;
+    private final int speedBuckets;
+
+    /**
+     * Constructor for a ColorTable object
+     *
+     * @param sats    saturation of every speed bucket, from 0 to 100
+     * @param bright_ brightness of every color, from 0 to 100
+     */
+
+    private ColorTable(float[] sats, float bright_) {
+        speedBuckets = sats.length;
+        table = new int[speedBuckets * HUE_BUCKETS];
+        for (int s = 0; s < speedBuckets; s++) {
+            for (int h = 0; h < HUE_BUCKETS; h++) {
+                float hue = hueOf((h + 0.5f) * 4 / HUE_BUCKETS);
+                table[s * HUE_BUCKETS + h] = 0xFF000000 | Color.HSBtoRGB(hue / 360, sats[s] / 100, bright_ / 100);
+            }
+        }
+    }
+
+    /**
+     * Creates a ColorTable with one saturation whatever the speed, as for Triangles
+     *
+     * @param sat    saturation, from 0 to 100
+     * @param bright brightness, from 0 to 100
+     * @return the ColorTable
+     */
+    static ColorTable fixed(float sat, float bright) {
+        return new ColorTable(new float[]{sat}, bright);
+    }
+
+    /**
+     * Creates a ColorTable whose saturation rises with speed, as for Bullets,
+     * full from MAX_SPEED on.
+     * Speed buckets are spaced by the square root of speed,
+     * so every bucket is about the same step in saturation
+     *
+     * @param bright brightness, from 0 to 100
+     * @return the ColorTable
+     */
+    static ColorTable bySpeed(float bright) {
+        float[] sats = new float[SPEED_BUCKETS];
+        for (int s = 0; s < SPEED_BUCKETS; s++) {
+            float root = (s + 0.5f) / SPEED_BUCKETS;
+            float speed = root * root * MAX_SPEED;
+            sats[s] = Math.min(100, (float) Math.sqrt(10 + speed / MAX_SPEED * (10000 - 10)));
+        }
+        return new ColorTable(sats, bright);
+    }
+
+    /**
+     * Getter method for the color of a velocity
+     *
+     * @param vx horizontal velocity
+     * @param vy vertical velocity
+     * @return packed ARGB color
+     */
+    int colorFor(float vx, float vy) {
+        //  Hue is 180 + the angle of (vy, -vx)
+        float x = vy;
+        float y = -vx;
+        float ax = Math.abs(x);
+        float ay = Math.abs(y);
+        //  No velocity gives NaN, which casts to bucket 0
+        float f = ay / (ax + ay);
+        float diamond;
+        if (y >= 0) {
+            diamond = x >= 0 ? f : 2 - f;
+        } else {
+            diamond = x < 0 ? 2 + f : 4 - f;
+        }
+        //  A sliver under 4 can round up to it, which wraps round to bucket 0
+        int hue = (int) (diamond * (HUE_BUCKETS / 4)) & (HUE_BUCKETS - 1);
+
+        if (speedBuckets == 1) {
+            return table[hue];
+        }
+        float root = (float) Math.sqrt(Math.sqrt(vx * vx + vy * vy) / MAX_SPEED);
+        int speed = Math.min((int) (root * speedBuckets), speedBuckets - 1);
+        return table[speed * HUE_BUCKETS + hue];
+    }
+
+    /**
+     * Works out the hue at a diamond angle, only when filling the table
+     *
+     * @param diamond diamond angle, from 0 to 4
+     * @return hue, in degrees
+     */
+    private static float hueOf(float diamond) {
+        int quadrant = (int) diamond;
+        float f = diamond - quadrant;
+        float x;
+        float y;
+        switch (quadrant) {
+            case 0:
+                x = 1 - f;
+                y = f;
+                break;
+            case 1:
+                x = -f;
+                y = 1 - f;
+                break;
+            case 2:
+                x = f - 1;
+                y = -f;
+                break;
+            default:
+                x = f;
+                y = f - 1;
+                break;
+        }
+        return 180 + (float) Math.toDegrees(Math.atan2(y, x));
+    }
+}
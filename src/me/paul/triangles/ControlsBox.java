@@ -36,15 +36,15 @@ class ControlsBox {
     }
 
     void update() {
-        topLeft = new PVector(PADDING, PADDING);
-        topCenter = new PVector(manager.width / 2, PADDING);
-        topRight = new PVector(manager.width - PADDING, PADDING);
-        centerLeft = new PVector(PADDING, manager.height / 2);
-        center = new PVector(manager.width / 2, manager.height / 2);
-        centerRight = new PVector(manager.width - PADDING, manager.height / 2);
-        bottomLeft = new PVector(PADDING, manager.height - PADDING);
-        bottomCenter = new PVector(manager.width / 2, manager.height - PADDING);
-        bottomRight = new PVector(manager.width - PADDING, manager.height - PADDING);
+        topLeft.set(PADDING, PADDING);
+        topCenter.set(manager.width / 2, PADDING);
+        topRight.set(manager.width - PADDING, PADDING);
+        centerLeft.set(PADDING, manager.height / 2);
+        center.set(manager.width / 2, manager.height / 2);
+        centerRight.set(manager.width - PADDING, manager.height / 2);
+        bottomLeft.set(PADDING, manager.height - PADDING);
+        bottomCenter.set(manager.width / 2, manager.height - PADDING);
+        bottomRight.set(manager.width - PADDING, manager.height - PADDING);
     }
 
     // TODO: Finish drawing
@@ -109,5 +109,13 @@ class ControlsBox {
         yLoc += textSize + 10;
         manager.text("b:", xLoc, yLoc);
         yLoc += textSize + 10;
+        manager.text("x:", xLoc, yLoc);
+        yLoc += textSize + 10;
+        manager.text("s:", xLoc, yLoc);
+        yLoc += textSize + 10;
+        manager.text("z:", xLoc, yLoc);
+        yLoc += textSize + 10;
+        manager.text("v:", xLoc, yLoc);
+        yLoc += textSize + 10;
     }
 }
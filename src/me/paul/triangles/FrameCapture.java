@@ -0,0 +1,380 @@
+package me.paul.triangles;
+
+import processing.core.PGraphics;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Records drawn frames to a folder of numbered images, off the drawing thread.
+ * Capturing a frame only copies its pixels into a pooled buffer;
+ * a small pool of encoder threads then writes the buffer out
+ * and hands it back to the pool.
+ * <p>
+ * The pool holds a few buffers per encoder, and is all the queue there is.
+ * When every buffer is waiting to be written the frame is dropped,
+ * or, with -Dtriangles.captureBlock=true, the drawing thread waits for a buffer.
+ * <p>
+ * Every buffer is a Job, run by an encoder as it is, and handed to the encoders in turn
+ * through a ring only the drawing thread adds to,
+ * so capturing a frame allocates nothing once the buffers are the size of the window
+ * <p>
+ * Frames are written as PNG, or as raw pixels: width * height little-endian ARGB ints,
+ * that is BGRA bytes, with no header.
+ * Works with any renderer that can load its pixels, JAVA2D included
+ * @version 1.0
+ */
+
+class FrameCapture {
+
+    /**
+     * Folder to capture the window to
+     * Set with -Dtriangles.capture=folder, off by default
+     */
+    static final String DEFAULT_DIR = System.getProperty("triangles.capture");
+
+    /**
+     * How frames are written, png or raw
+     * Set with -Dtriangles.captureFormat=raw, png by default
+     */
+    static final String DEFAULT_FORMAT = System.getProperty("triangles.captureFormat", "png");
+
+    /**
+     * Amount of encoder threads
+     * Set with -Dtriangles.captureWorkers=n, half the cores by default
+     */
+    static final int DEFAULT_WORKERS = Integer.getInteger("triangles.captureWorkers",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+
+    /**
+     * Whether a full pool holds up drawing rather than dropping the frame
+     * Set with -Dtriangles.captureBlock=true, drops by default
+     */
+    static final boolean DEFAULT_BLOCK = Boolean.getBoolean("triangles.captureBlock");
+
+    /**
+     * Buffers in the pool for every encoder
+     */
+    private static final int BUFFERS_PER_WORKER = 2;
+
+    /**
+     * How long a blocked drawing thread sleeps between looks for a free buffer
+     */
+    private static final long WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    private final Path dir;
+    private final boolean png;
+    private final boolean block;
+
+    /**
+     * Every buffer, free or waiting to be written, and the one to look at first for a free one
+     * Taken in turn, so every buffer is sized by the first frames captured
+     */
+    private final Job[] jobs;
+    private int nextJob;
+
+    /**
+     * Encoder threads, and the one the next frame goes to
+     */
+    private final Encoder[] encoders;
+    private int nextEncoder;
+
+    /**
+     * Bytes of a raw frame, one per encoder, reused from frame to frame
+     */
+    private final ThreadLocal<ByteBuffer> rawBytes;
+
+    /**
+     * Frames copied and not yet written, frames written, frames that failed to write
+     */
+    private final AtomicInteger queued;
+    private final AtomicLong written;
+    private final AtomicLong failed;
+    private long dropped;
+
+    /**
+     * Constructor for a FrameCapture object
+     *
+     * @param dir_     folder to write frames to, made if missing
+     * @param format_  png or raw
+     * @param workers_ amount of encoder threads
+     * @param block_   whether to wait for a free buffer rather than drop a frame
+     * @throws IOException if the folder cannot be made
+     */
+
+    FrameCapture(String dir_, String format_, int workers_, boolean block_) throws IOException {
+        if (!format_.equals("png") && !format_.equals("raw")) {
+            throw new IOException("unknown capture format " + format_ + ", use png or raw");
+        }
+        dir = Files.createDirectories(Paths.get(dir_));
+        png = format_.equals("png");
+        block = block_;
+
+        int workers = Math.max(1, workers_);
+        jobs = new Job[workers * BUFFERS_PER_WORKER];
+        for (int i = 0; i < jobs.length; i++) {
+            jobs[i] = new Job();
+        }
+        encoders = new Encoder[workers];
+        for (int i = 0; i < workers; i++) {
+            encoders[i] = new Encoder(jobs.length);
+            encoders[i].thread.start();
+        }
+        nextJob = 0;
+        nextEncoder = 0;
+
+        rawBytes = new ThreadLocal<>();
+
+        queued = new AtomicInteger();
+        written = new AtomicLong();
+        failed = new AtomicLong();
+        dropped = 0;
+    }
+
+    /**
+     * Copies the pixels of a finished frame and queues them to be written
+     * Only to be called from the thread drawing the frame, after it is drawn
+     *
+     * @param g     the graphics drawn to
+     * @param frame number of the frame, used to name its file
+     * @return whether the frame was queued, false if it was dropped
+     */
+    boolean capture(PGraphics g, long frame) {
+        Job job = take();
+        if (job == null) {
+            dropped++;
+            return false;
+        }
+
+        int width = g.pixelWidth;
+        int height = g.pixelHeight;
+        int length = width * height;
+        if (job.pixels.length != length) {
+            //  The window has been resized since this buffer was made
+            job.pixels = new int[length];
+        }
+
+        g.loadPixels();
+        System.arraycopy(g.pixels, 0, job.pixels, 0, length);
+        job.width = width;
+        job.height = height;
+        job.frame = frame;
+
+        queued.incrementAndGet();
+        encoders[nextEncoder].offer(job);
+        nextEncoder = (nextEncoder + 1) % encoders.length;
+        return true;
+    }
+
+    /**
+     * Takes a free buffer
+     *
+     * @return the buffer, or null if none is free and frames are dropped
+     */
+    private Job take() {
+        while (true) {
+            for (int i = 0; i < jobs.length; i++) {
+                Job job = jobs[(nextJob + i) % jobs.length];
+                if (job.free) {
+                    job.free = false;
+                    nextJob = (nextJob + i + 1) % jobs.length;
+                    return job;
+                }
+            }
+            if (!block || Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+            LockSupport.parkNanos(this, WAIT_NANOS);
+        }
+    }
+
+    /**
+     * Writes a frame, on an encoder thread
+     */
+    private void encode(int[] pixels, int width, int height, long frame) {
+        try {
+            if (png) {
+                writePng(pixels, width, height, frame);
+            } else {
+                writeRaw(pixels, width * height, frame);
+            }
+            written.incrementAndGet();
+        } catch (IOException | RuntimeException e) {
+            //  Only the first failure is worth a message
+            if (failed.getAndIncrement() == 0) {
+                System.err.println("FrameCapture: could not write frame " + frame + ", " + e.getMessage());
+            }
+        }
+    }
+
+    private void writePng(int[] pixels, int width, int height, long frame) throws IOException {
+        //  Wraps the buffer rather than copying it, ignoring alpha
+        DirectColorModel model = new DirectColorModel(24, 0xFF0000, 0xFF00, 0xFF);
+        WritableRaster raster = Raster.createPackedRaster(new DataBufferInt(pixels, width * height),
+                width, height, width, model.getMasks(), null);
+        BufferedImage image = new BufferedImage(model, raster, false, null);
+        File file = dir.resolve(String.format("frame-%06d.png", frame)).toFile();
+        if (!ImageIO.write(image, "png", file)) {
+            throw new IOException("no PNG writer");
+        }
+    }
+
+    private void writeRaw(int[] pixels, int length, long frame) throws IOException {
+        ByteBuffer bytes = rawBytes.get();
+        if (bytes == null || bytes.capacity() != length * 4) {
+            bytes = ByteBuffer.allocate(length * 4).order(ByteOrder.LITTLE_ENDIAN);
+            rawBytes.set(bytes);
+        }
+        bytes.clear();
+        bytes.asIntBuffer().put(pixels, 0, length);
+        Path file = dir.resolve(String.format("frame-%06d.raw", frame));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Waits for every queued frame to be written, then stops the encoders
+     */
+    void close() {
+        for (Encoder encoder : encoders) {
+            encoder.running = false;
+            LockSupport.unpark(encoder.thread);
+        }
+        long end = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        try {
+            for (Encoder encoder : encoders) {
+                encoder.thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime())));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return frames copied and not yet written
+     */
+    int getQueued() {
+        return queued.get();
+    }
+
+    long getWritten() {
+        return written.get();
+    }
+
+    long getDropped() {
+        return dropped;
+    }
+
+    long getFailed() {
+        return failed.get();
+    }
+
+    String getFormat() {
+        return png ? "png" : "raw";
+    }
+
+    /**
+     * One buffer of the pool, and the frame copied into it, written by whichever encoder it is handed to
+     */
+    private class Job implements Runnable {
+
+        int[] pixels;
+        int width;
+        int height;
+        long frame;
+
+        /**
+         * Whether the drawing thread may copy into this buffer
+         */
+        volatile boolean free;
+
+        Job() {
+            pixels = new int[0];
+            free = true;
+        }
+
+        /**
+         * Writes the frame and hands the buffer back
+         */
+        @Override
+        public void run() {
+            try {
+                encode(pixels, width, height, frame);
+            } finally {
+                queued.decrementAndGet();
+                free = true;
+            }
+        }
+    }
+
+    /**
+     * One encoder thread, and the Jobs handed to it,
+     * a ring only capture() adds to and only the encoder takes from
+     */
+    private static class Encoder implements Runnable {
+
+        final Thread thread;
+        volatile boolean running;
+
+        private final Job[] ring;
+        private volatile long added;
+        private volatile long taken;
+
+        Encoder(int capacity) {
+            ring = new Job[capacity];
+            running = true;
+            thread = new Thread(this, "FrameCapture encoder");
+            thread.setDaemon(true);
+        }
+
+        /**
+         * Hands a Job over, only called from the drawing thread
+         * There is always room, as the ring fits every Job there is
+         */
+        void offer(Job job) {
+            long at = added;
+            ring[(int) (at % ring.length)] = job;
+            added = at + 1;
+            LockSupport.unpark(thread);
+        }
+
+        @Override
+        public void run() {
+            while (running || taken != added) {
+                long at = taken;
+                if (at == added) {
+                    LockSupport.park(this);
+                    continue;
+                }
+                int slot = (int) (at % ring.length);
+                Job job = ring[slot];
+                ring[slot] = null;
+                taken = at + 1;
+                job.run();
+            }
+        }
+    }
+}
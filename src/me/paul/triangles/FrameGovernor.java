@@ -0,0 +1,174 @@
+package me.paul.triangles;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Keeps the window within its frame budget by trading away drawing detail.
+ * Frame times are averaged over windows of WINDOW frames.
+ * A window over budget, either drawing for longer than the budget
+ * or frames coming more than 15% slower than it, drops one Quality level.
+ * A window using under half the budget, with frames on time, raises one level,
+ * but only once the level has held for a while.
+ * <p>
+ * A raise that is followed by a drop soon after was too early,
+ * so the wait before the next raise doubles, up to MAX_HOLD frames,
+ * and halves again every MAX_HOLD frames without a drop.
+ * That way a load sitting right at a boundary settles instead of flickering between two levels
+ * @version 1.0
+ */
+
+class FrameGovernor {
+
+    /**
+     * Time one frame may take, in milliseconds
+     * Set with -Dtriangles.budget=ms, 60 frames a second by default
+     */
+    static final float DEFAULT_BUDGET_MS = Float.parseFloat(System.getProperty("triangles.budget", "16.67"));
+
+    /**
+     * Quality to hold, or auto to follow the load
+     * Set with -Dtriangles.quality=level, such as FULL or POINTS, auto by default
+     */
+    static final String DEFAULT_QUALITY = System.getProperty("triangles.quality", "auto");
+
+    /**
+     * Frames averaged for every decision
+     */
+    private static final int WINDOW = 30;
+
+    /**
+     * Least and most frames to hold a level before raising it
+     */
+    private static final int MIN_HOLD = 60;
+    private static final int MAX_HOLD = 960;
+
+    /**
+     * Fractions of the budget a window must be over to drop, or under to raise
+     */
+    private static final float SLOW_FRAMES = 1.15f;
+    private static final float ON_TIME_FRAMES = 1.05f;
+    private static final float IDLE_DRAW = 0.5f;
+
+    private static final Quality[] LEVELS = Quality.values();
+
+    private final long budget;
+    private final boolean fixed;
+    private int level;
+
+    /**
+     * Sums over the current window, and when the last frame ended
+     */
+    private int frames;
+    private long drawSum;
+    private long intervalSum;
+    private int intervals;
+    private long lastFrame;
+
+    /**
+     * Frames since the level last changed, frames to hold before raising, and whether it last rose
+     */
+    private int sinceChange;
+    private int hold;
+    private boolean raised;
+
+    /**
+     * Averages of the last full window, in nanoseconds
+     */
+    private long meanDraw;
+    private long meanInterval;
+
+    /**
+     * Constructor for a FrameGovernor object
+     *
+     * @param budgetMs_ time one frame may take, in milliseconds
+     * @param quality_  level to hold, or auto to follow the load
+     * @throws IllegalArgumentException if quality_ is not auto or a Quality
+     */
+
+    FrameGovernor(float budgetMs_, String quality_) {
+        budget = (long) (budgetMs_ * 1e6);
+        fixed = !quality_.equalsIgnoreCase("auto");
+        level = fixed ? Quality.valueOf(quality_.toUpperCase()).ordinal() : 0;
+        hold = MIN_HOLD;
+    }
+
+    /**
+     * Records a finished frame, and changes level if the last window called for it
+     *
+     * @param drawNanos time spent drawing the frame
+     * @param now       when the frame ended, in System.nanoTime()
+     */
+    void record(long drawNanos, long now) {
+        if (lastFrame != 0) {
+            intervalSum += now - lastFrame;
+            intervals++;
+        }
+        lastFrame = now;
+        drawSum += drawNanos;
+        frames++;
+        sinceChange++;
+
+        if (frames < WINDOW) {
+            return;
+        }
+        meanDraw = drawSum / frames;
+        meanInterval = intervals == 0 ? 0 : intervalSum / intervals;
+        frames = 0;
+        drawSum = 0;
+        intervalSum = 0;
+        intervals = 0;
+
+        if (!fixed) {
+            decide();
+        }
+    }
+
+    private void decide() {
+        boolean over = meanDraw > budget || meanInterval > budget * SLOW_FRAMES;
+        boolean under = meanDraw < budget * IDLE_DRAW && meanInterval < budget * ON_TIME_FRAMES;
+
+        if (over && level < LEVELS.length - 1) {
+            if (raised && sinceChange < hold * 2) {
+                //  Raised too soon, wait longer next time
+                hold = Math.min(hold * 2, MAX_HOLD);
+            }
+            level++;
+            sinceChange = 0;
+            raised = false;
+        } else if (under && level > 0 && sinceChange >= hold) {
+            level--;
+            sinceChange = 0;
+            raised = true;
+        } else if (!over && sinceChange >= MAX_HOLD && hold > MIN_HOLD) {
+            //  Steady for a good while, be quicker to raise again
+            hold = Math.max(hold / 2, MIN_HOLD);
+            sinceChange = MAX_HOLD / 2;
+        }
+    }
+
+    Quality getQuality() {
+        return LEVELS[level];
+    }
+
+    boolean isFixed() {
+        return fixed;
+    }
+
+    float getBudgetMs() {
+        return budget / 1e6f;
+    }
+
+    /**
+     * @return average drawing time of the last window, in nanoseconds
+     */
+    long getMeanDraw() {
+        return meanDraw;
+    }
+
+    /**
+     * @return average time between frames of the last window, in nanoseconds
+     */
+    long getMeanInterval() {
+        return meanInterval;
+    }
+}
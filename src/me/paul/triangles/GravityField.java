@@ -0,0 +1,291 @@
+package me.paul.triangles;
+
+import java.util.Arrays;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Cached acceleration field for MULTI_POINT gravity.
+ * The pull of every gravity point is summed once onto a grid of nodes,
+ * and bullets read it back with bilinear interpolation,
+ * so a bullet costs the same no matter how many gravity points there are.
+ * <p>
+ * Close to a gravity point the field bends too sharply for the grid,
+ * so every cell also keeps a list of its nearby points.
+ * For those, the interpolated pull is swapped out for the exact one.
+ * <p>
+ * The grid is only rebuilt when the gravity points or the world size change
+ * @version 1.0
+ */
+
+class GravityField {
+
+    /**
+     * Distance between grid nodes, in pixels
+     */
+    private static final float CELL = 16;
+    private static final float INV_CELL = 1 / CELL;
+
+    /**
+     * Extra grid around the world, for bullets just off-screen
+     */
+    private static final float MARGIN = CELL * 2;
+
+    /**
+     * Points closer than this to a cell are corrected exactly inside it
+     * Covers the clamped region around a point, plus a cell of slack
+     */
+    private static final float NEAR_RADIUS = BulletStore.GRAVITY_CLAMP_DIST + CELL;
+
+    /**
+     * Grid layout
+     */
+    private float originX;
+    private float originY;
+    private int cols;
+    private int rows;
+
+    /**
+     * Summed acceleration at every node
+     */
+    private float[] fieldX;
+    private float[] fieldY;
+
+    /**
+     * Nearby points of every cell, packed one cell after another.
+     * Cell c owns entries nearStart[c] to nearStart[c + 1] - 1.
+     * Every entry keeps its point, and that point's own pull
+     * at the cell's four corners (x then y, for each corner)
+     */
+    private int[] nearStart;
+    private int[] nearPoint;
+    private float[] nearCorners;
+
+    /**
+     * Gravity points the grid was built from
+     */
+    private float[] pointX;
+    private float[] pointY;
+    private int points;
+
+    /**
+     * What the grid was built for, to know when to rebuild
+     */
+    private int builtVersion;
+    private int builtWidth;
+    private int builtHeight;
+
+    /**
+     * Constructor for a GravityField object
+     * Nothing is built until the first call to prepare()
+     */
+
+    GravityField() {
+        builtVersion = -1;
+        fieldX = new float[0];
+        fieldY = new float[0];
+        nearStart = new int[1];
+        nearPoint = new int[0];
+        nearCorners = new float[0];
+        pointX = new float[0];
+        pointY = new float[0];
+    }
+
+    /**
+     * Makes sure the grid matches the current gravity points and world size,
+     * rebuilding it only if something changed
+     *
+     * @param px      horizontal location of every gravity point
+     * @param py      vertical location of every gravity point
+     * @param n       amount of gravity points
+     * @param version changes whenever the gravity points change
+     * @param width   width of the world
+     * @param height  height of the world
+     */
+    void prepare(float[] px, float[] py, int n, int version, int width, int height) {
+        if (version == builtVersion && width == builtWidth && height == builtHeight) {
+            return;
+        }
+
+        builtVersion = version;
+        builtWidth = width;
+        builtHeight = height;
+
+        pointX = Arrays.copyOf(px, n);
+        pointY = Arrays.copyOf(py, n);
+        points = n;
+
+        buildField();
+        buildNear();
+    }
+
+    /**
+     * Sums the pull of every point onto every node
+     */
+    private void buildField() {
+        originX = -MARGIN;
+        originY = -MARGIN;
+        cols = (int) Math.ceil((builtWidth + MARGIN * 2) / CELL) + 1;
+        rows = (int) Math.ceil((builtHeight + MARGIN * 2) / CELL) + 1;
+
+        if (fieldX.length < cols * rows) {
+            fieldX = new float[cols * rows];
+            fieldY = new float[cols * rows];
+        }
+
+        for (int r = 0; r < rows; r++) {
+            float ny = originY + r * CELL;
+            for (int c = 0; c < cols; c++) {
+                float nx = originX + c * CELL;
+                float sumX = 0;
+                float sumY = 0;
+                for (int p = 0; p < points; p++) {
+                    float dx = pointX[p] - nx;
+                    float dy = pointY[p] - ny;
+                    float dist = (float) Math.sqrt(dx * dx + dy * dy);
+                    if (dist > 0) {
+                        float pull = BulletStore.gravity(dist) / dist;
+                        sumX += dx * pull;
+                        sumY += dy * pull;
+                    }
+                }
+                fieldX[r * cols + c] = sumX;
+                fieldY[r * cols + c] = sumY;
+            }
+        }
+    }
+
+    /**
+     * Finds the nearby points of every cell,
+     * and the pull of each one on that cell's corners
+     */
+    private void buildNear() {
+        int cells = (cols - 1) * (rows - 1);
+        nearStart = new int[cells + 1];
+
+        //  First pass counts entries per cell, second pass fills them in
+        for (int pass = 0; pass < 2; pass++) {
+            int[] fill = pass == 1 ? Arrays.copyOf(nearStart, cells) : null;
+
+            for (int p = 0; p < points; p++) {
+                int c0 = Math.max(0, (int) ((pointX[p] - NEAR_RADIUS - originX) / CELL));
+                int c1 = Math.min(cols - 2, (int) ((pointX[p] + NEAR_RADIUS - originX) / CELL));
+                int r0 = Math.max(0, (int) ((pointY[p] - NEAR_RADIUS - originY) / CELL));
+                int r1 = Math.min(rows - 2, (int) ((pointY[p] + NEAR_RADIUS - originY) / CELL));
+
+                for (int r = r0; r <= r1; r++) {
+                    for (int c = c0; c <= c1; c++) {
+                        float left = originX + c * CELL;
+                        float top = originY + r * CELL;
+
+                        //  Skip cells whose closest point is out of reach
+                        float dx = pointX[p] - Math.min(Math.max(pointX[p], left), left + CELL);
+                        float dy = pointY[p] - Math.min(Math.max(pointY[p], top), top + CELL);
+                        if (dx * dx + dy * dy > NEAR_RADIUS * NEAR_RADIUS) {
+                            continue;
+                        }
+
+                        int cell = r * (cols - 1) + c;
+                        if (pass == 0) {
+                            nearStart[cell + 1]++;
+                        } else {
+                            int entry = fill[cell]++;
+                            nearPoint[entry] = p;
+                            cornerPull(p, left, top, entry * 8);
+                            cornerPull(p, left + CELL, top, entry * 8 + 2);
+                            cornerPull(p, left, top + CELL, entry * 8 + 4);
+                            cornerPull(p, left + CELL, top + CELL, entry * 8 + 6);
+                        }
+                    }
+                }
+            }
+
+            if (pass == 0) {
+                for (int cell = 0; cell < cells; cell++) {
+                    nearStart[cell + 1] += nearStart[cell];
+                }
+                nearPoint = new int[nearStart[cells]];
+                nearCorners = new float[nearStart[cells] * 8];
+            }
+        }
+    }
+
+    /**
+     * Saves the pull of one point on one node into nearCorners
+     *
+     * @param p      the gravity point
+     * @param nx     horizontal location of the node
+     * @param ny     vertical location of the node
+     * @param offset where in nearCorners to save the pull
+     */
+    private void cornerPull(int p, float nx, float ny, int offset) {
+        float dx = pointX[p] - nx;
+        float dy = pointY[p] - ny;
+        float dist = (float) Math.sqrt(dx * dx + dy * dy);
+        float pull = dist > 0 ? BulletStore.gravity(dist) / dist : 0;
+        nearCorners[offset] = dx * pull;
+        nearCorners[offset + 1] = dy * pull;
+    }
+
+    /**
+     * Reads the acceleration of a range of bullets out of the field
+     *
+     * @param x    horizontal location of every bullet
+     * @param y    vertical location of every bullet
+     * @param ax   horizontal acceleration, written for every bullet in range
+     * @param ay   vertical acceleration, written for every bullet in range
+     * @param from first slot to sample
+     * @param to   slot after the last one to sample
+     */
+    void sample(float[] x, float[] y, float[] ax, float[] ay, int from, int to) {
+        int cellCols = cols - 1;
+
+        //  Furthest grid coordinate a bullet is clamped to,
+        //  just inside the last cell so its corners stay on the grid
+        float maxX = Math.nextDown((float) (cols - 1));
+        float maxY = Math.nextDown((float) (rows - 1));
+
+        for (int i = from; i < to; i++) {
+            //  Find the cell, clamped to the grid
+            float gx = (x[i] - originX) * INV_CELL;
+            float gy = (y[i] - originY) * INV_CELL;
+            gx = gx < 0 ? 0 : gx > maxX ? maxX : gx;
+            gy = gy < 0 ? 0 : gy > maxY ? maxY : gy;
+            int c = (int) gx;
+            int r = (int) gy;
+            float fx = gx - c;
+            float fy = gy - r;
+
+            //  Bilinear weights of the four corners
+            float w00 = (1 - fx) * (1 - fy);
+            float w10 = fx * (1 - fy);
+            float w01 = (1 - fx) * fy;
+            float w11 = fx * fy;
+
+            int n = r * cols + c;
+            float sumX = fieldX[n] * w00 + fieldX[n + 1] * w10 + fieldX[n + cols] * w01 + fieldX[n + cols + 1] * w11;
+            float sumY = fieldY[n] * w00 + fieldY[n + 1] * w10 + fieldY[n + cols] * w01 + fieldY[n + cols + 1] * w11;
+
+            //  Swap the interpolated pull of nearby points for the exact one
+            int cell = r * cellCols + c;
+            for (int e = nearStart[cell]; e < nearStart[cell + 1]; e++) {
+                int p = nearPoint[e];
+                int k = e * 8;
+                sumX -= nearCorners[k] * w00 + nearCorners[k + 2] * w10 + nearCorners[k + 4] * w01 + nearCorners[k + 6] * w11;
+                sumY -= nearCorners[k + 1] * w00 + nearCorners[k + 3] * w10 + nearCorners[k + 5] * w01 + nearCorners[k + 7] * w11;
+
+                float dx = pointX[p] - x[i];
+                float dy = pointY[p] - y[i];
+                float dist = (float) Math.sqrt(dx * dx + dy * dy);
+                if (dist > 0) {
+                    float pull = BulletStore.gravity(dist) / dist;
+                    sumX += dx * pull;
+                    sumY += dy * pull;
+                }
+            }
+
+            ax[i] = sumX;
+            ay[i] = sumY;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package me.paul.triangles;
+
+import processing.awt.PGraphicsJava2D;
+import processing.core.PConstants;
+import processing.core.PGraphics;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Runs a World without a window, as fast as the CPU allows.
+ * <p>
+ * Plays back an input recording step by step,
+ * timing every step into a Histogram and, if -Dtriangles.metrics is set,
+ * streaming per-second rollups to a CSV file just like the window does.
+ * Prints the step time percentiles of the whole run when done,
+ * along with a checksum of the final state,
+ * so two runs of the same recording can be checked to have matched
+ * <p>
+ * With -Dtriangles.capture=folder every step is also drawn offscreen
+ * with the JAVA2D renderer, which needs no display or graphics card,
+ * and written out by a FrameCapture. No frame is ever dropped,
+ * the run waits for the encoders instead
+ * <p>
+ * Usage: Headless recording [workers]
+ * @version 1.0
+ */
+
+class Headless {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: Headless recording [workers]");
+            System.exit(2);
+        }
+
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : World.DEFAULT_WORKERS;
+        InputReplay replay = new InputReplay(args[0]);
+        World world = new World(replay.getStartWidth(), replay.getStartHeight(), workers);
+        InputState input = new InputState();
+
+        Metrics metrics = new Metrics(Metrics.DEFAULT_CSV);
+        Histogram steps = new Histogram();
+        long stepCount = 0;
+
+        FrameCapture capture = null;
+        PGraphics frame = null;
+        Snapshot snapshot = new Snapshot();
+        Snapshot last = new Snapshot();
+        BulletRenderer bulletRenderer = new BulletRenderer();
+        TriangleRenderer triangleRenderer = new TriangleRenderer();
+        if (FrameCapture.DEFAULT_DIR != null) {
+            capture = new FrameCapture(FrameCapture.DEFAULT_DIR, FrameCapture.DEFAULT_FORMAT,
+                    FrameCapture.DEFAULT_WORKERS, true);
+            frame = offscreen(replay.getStartWidth(), replay.getStartHeight());
+        }
+
+        long runStart = System.nanoTime();
+        while (replay.next(input, world)) {
+            long start = System.nanoTime();
+            world.step(input);
+            long end = System.nanoTime();
+
+            steps.record(end - start);
+            metrics.record(Phase.STEP, end - start);
+            metrics.record(Phase.BULLET_UPDATE, world.getBulletUpdateTime());
+            metrics.record(Phase.TRIANGLE_UPDATE, world.getTriangleUpdateTime());
+            metrics.record(Phase.HITS, world.getHitTime());
+
+            if (capture != null) {
+                snapshot.capture(world, last, end);
+                Snapshot swap = last;
+                last = snapshot;
+                snapshot = swap;
+
+                start = System.nanoTime();
+                frame.beginDraw();
+                frame.colorMode(PConstants.HSB, 360, 100, 100, 100);
+                frame.background(input.getMouseX() * 360f / frame.width, 20, 100, 100);
+                bulletRenderer.draw(frame, last, 1);
+                triangleRenderer.draw(frame, last, 1);
+                frame.endDraw();
+                end = System.nanoTime();
+                metrics.record(Phase.FRAME, end - start);
+
+                capture.capture(frame, stepCount);
+                start = end;
+                end = System.nanoTime();
+                metrics.record(Phase.CAPTURE, end - start);
+            }
+
+            metrics.tick(end);
+            stepCount++;
+        }
+        long runEnd = System.nanoTime();
+        if (capture != null) {
+            capture.close();
+        }
+        metrics.close();
+
+        long[] counts = new long[Histogram.BUCKETS];
+        steps.copyCounts(counts);
+        long max = steps.takeMax();
+
+        System.out.printf("Steps: %d in %.3fs%n", stepCount, (runEnd - runStart) / 1e9);
+        System.out.printf("Step time: p50 %.3fms, p99 %.3fms, max %.3fms%n",
+                Math.min(Histogram.percentile(counts, stepCount, 50), max) / 1e6,
+                Math.min(Histogram.percentile(counts, stepCount, 99), max) / 1e6,
+                max / 1e6);
+        System.out.printf("Triangles: %d, Bullets: %d%n", world.getTriangles().size(), world.getBullets().size());
+        System.out.printf("Checksum: %016x%n", checksum(world));
+        if (capture != null) {
+            System.out.printf("Frames: %d written, %d failed, to %s%n",
+                    capture.getWritten(), capture.getFailed(), FrameCapture.DEFAULT_DIR);
+        }
+    }
+
+    /**
+     * Creates a JAVA2D graphics to draw to without a window
+     *
+     * @param width  width in pixels
+     * @param height height in pixels
+     * @return the graphics
+     */
+    static PGraphics offscreen(int width, int height) {
+        PGraphicsJava2D g = new PGraphicsJava2D();
+        g.setPrimary(false);
+        g.setSize(width, height);
+        //  Made here, as JAVA2D would ask the screen for one, and there may be no screen
+        g.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        return g;
+    }
+
+    /**
+     * Hashes the location of every Triangle and Bullet
+     *
+     * @param world the World to hash
+     * @return the hash
+     */
+    static long checksum(World world) {
+        long hash = 1125899906842597L;
+        TriangleRing triangles = world.getTriangles();
+        for (int i = 0; i < triangles.size(); i++) {
+            Triangle t = triangles.get(i);
+            hash = 31 * hash + Float.floatToIntBits(t.getPos().x);
+            hash = 31 * hash + Float.floatToIntBits(t.getPos().y);
+        }
+        BulletStore bullets = world.getBullets();
+        for (int i = 0; i < bullets.size(); i++) {
+            hash = 31 * hash + Float.floatToIntBits(bullets.getX(i));
+            hash = 31 * hash + Float.floatToIntBits(bullets.getY(i));
+        }
+        return hash;
+    }
+}
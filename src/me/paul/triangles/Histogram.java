@@ -0,0 +1,151 @@
+package me.paul.triangles;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Counts of timings, in nanoseconds, sorted into log-linear buckets.
+ * Every power of two is split into SUB_BUCKETS equal buckets,
+ * so any timing is known to within 1 / SUB_BUCKETS of itself,
+ * from a nanosecond up to MAX_VALUE, in a fixed amount of memory.
+ * <p>
+ * Counts only ever go up. Whoever reads them keeps the counts from last time
+ * and takes the difference, so recording never has to stop for a reader.
+ * <p>
+ * Each Histogram must only be recorded into from one thread,
+ * but can be read from any other while it is
+ * @version 1.0
+ */
+
+class Histogram {
+
+    /**
+     * Buckets per power of two, and bits needed to pick one of them
+     */
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /**
+     * Largest timing kept apart, anything longer is counted as this
+     * About 18 minutes
+     */
+    static final long MAX_VALUE = (1L << 40) - 1;
+
+    /**
+     * Amount of buckets, enough for MAX_VALUE
+     */
+    static final int BUCKETS = bucketOf(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong max;
+
+    /**
+     * Constructor for an empty Histogram object
+     */
+
+    Histogram() {
+        counts = new AtomicLongArray(BUCKETS);
+        max = new AtomicLong();
+    }
+
+    /**
+     * Counts one timing
+     * Only to be called from the one thread recording into this Histogram
+     *
+     * @param nanos the timing, in nanoseconds
+     */
+    void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        } else if (nanos > MAX_VALUE) {
+            nanos = MAX_VALUE;
+        }
+
+        //  Only one thread writes, so a plain read and ordered write is enough
+        int b = bucketOf(nanos);
+        counts.lazySet(b, counts.get(b) + 1);
+        if (nanos > max.get()) {
+            max.lazySet(nanos);
+        }
+    }
+
+    /**
+     * Copies the count of every bucket out
+     *
+     * @param out filled with the count of every bucket, must fit BUCKETS
+     */
+    void copyCounts(long[] out) {
+        for (int b = 0; b < BUCKETS; b++) {
+            out[b] = counts.get(b);
+        }
+    }
+
+    /**
+     * Getter method for the longest timing since the last call
+     *
+     * @return the longest timing, in nanoseconds, 0 if none
+     */
+    long takeMax() {
+        return max.getAndSet(0);
+    }
+
+    /**
+     * Finds the bucket of a timing
+     *
+     * @param nanos the timing, from 0 to MAX_VALUE
+     * @return the bucket holding it
+     */
+    static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int power = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (power - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (power - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Finds the longest timing a bucket holds
+     *
+     * @param b the bucket
+     * @return the longest timing counted into it, in nanoseconds
+     */
+    static long highestOf(int b) {
+        if (b < SUB_BUCKETS) {
+            return b;
+        }
+        int power = b / SUB_BUCKETS + SUB_BITS - 1;
+        int sub = b % SUB_BUCKETS;
+        long lowest = (long) (SUB_BUCKETS + sub) << (power - SUB_BITS);
+        return lowest + (1L << (power - SUB_BITS)) - 1;
+    }
+
+    /**
+     * Finds a percentile of a set of bucket counts
+     *
+     * @param counts     count of every bucket
+     * @param total      sum of all counts
+     * @param percentile the percentile, from 0 to 100
+     * @return longest timing of the bucket the percentile falls in, 0 if there are no counts
+     */
+    static long percentile(long[] counts, long total, double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100);
+        if (rank < 1) {
+            rank = 1;
+        }
+
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+            if (seen >= rank) {
+                return highestOf(b);
+            }
+        }
+        return MAX_VALUE;
+    }
+}
@@ -0,0 +1,221 @@
+package me.paul.triangles;
+
+import processing.core.PApplet;
+import processing.core.PConstants;
+import processing.core.PGraphics;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Writes the debug text in the top left corner of the window:
+ * the mouse, counts, settings, quality, streaming, capture, and the timings of every Phase.
+ * <p>
+ * At Quality levels that redraw the HUD only every few frames,
+ * it is written to a buffer of its own, which is drawn over every frame in between.
+ * Every line goes through a HudText, so writing it makes no Strings
+ * @version 1.0
+ */
+
+class Hud {
+
+    /**
+     * Widest the buffer gets, for when the HUD is not redrawn every frame
+     */
+    private static final int WIDTH = 800;
+
+    private static final Phase[] PHASES = Phase.values();
+
+    /**
+     * Where the figures on the HUD come from, the Simulation or StreamClient, and the optional extras
+     */
+    private final PApplet sketch;
+    private final FrameGovernor governor;
+    private final Simulation sim;
+    private final StreamClient viewer;
+    private final StreamServer server;
+    private final FrameCapture capture;
+
+    /**
+     * Buffer the HUD is drawn to when it is only redrawn every few frames, and the frame it was last drawn
+     */
+    private PGraphics buffer;
+    private int bufferFrame;
+
+    /**
+     * State of the window this frame
+     */
+    private float mouseX;
+    private float mouseY;
+    private float frameRate;
+    private int frameCount;
+    private Quality quality;
+    private boolean capturing;
+
+    /**
+     * Constructor for a Hud object
+     *
+     * @param sketch_   the window, to make the buffer with
+     * @param governor_ picks the Quality
+     * @param sim_      the Simulation being drawn, or null when viewing a stream
+     * @param viewer_   the stream being drawn, or null when running a Simulation
+     * @param server_   where Snapshots are streamed to, or null
+     * @param capture_  where frames are captured to, or null
+     */
+
+    Hud(PApplet sketch_, FrameGovernor governor_, Simulation sim_, StreamClient viewer_,
+        StreamServer server_, FrameCapture capture_) {
+        sketch = sketch_;
+        governor = governor_;
+        sim = sim_;
+        viewer = viewer_;
+        server = server_;
+        capture = capture_;
+        quality = Quality.FULL;
+    }
+
+    /**
+     * Sets the state of the window for the next frame
+     *
+     * @param mouseX_     horizontal location of the mouse
+     * @param mouseY_     vertical location of the mouse
+     * @param frameRate_  frames drawn per second
+     * @param frameCount_ frames drawn so far
+     * @param quality_    detail being drawn at
+     * @param capturing_  whether frames are being captured, or paused
+     */
+    void setFrame(float mouseX_, float mouseY_, float frameRate_, int frameCount_, Quality quality_, boolean capturing_) {
+        mouseX = mouseX_;
+        mouseY = mouseY_;
+        frameRate = frameRate_;
+        frameCount = frameCount_;
+        quality = quality_;
+        capturing = capturing_;
+    }
+
+    /**
+     * Draws the HUD for a Snapshot, straight to the window,
+     * or through its own buffer at Quality levels that redraw it only every few frames
+     *
+     * @param line     line of text to write with
+     * @param g        the window
+     * @param snapshot the step to describe
+     * @param metrics  timings to show
+     */
+    void draw(HudText line, PGraphics g, Snapshot snapshot, Metrics metrics) {
+        int interval = quality.getHudInterval();
+        if (interval <= 1) {
+            write(line, g, snapshot, metrics);
+            return;
+        }
+
+        int width = Math.min(g.width, WIDTH);
+        if (buffer == null || buffer.width != width || buffer.height != g.height) {
+            buffer = sketch.createGraphics(width, g.height, sketch.sketchRenderer());
+            bufferFrame = 0;
+        }
+        if (frameCount - bufferFrame >= interval) {
+            buffer.beginDraw();
+            buffer.clear();
+            write(line, buffer, snapshot, metrics);
+            buffer.endDraw();
+            bufferFrame = frameCount;
+        }
+        g.image(buffer, 0, 0);
+    }
+
+    /**
+     * Writes the debug text for a Snapshot to the top left corner of a PGraphics
+     *
+     * @param line     line of text to write with
+     * @param g        where to write the text, the window or the buffer
+     * @param snapshot the step to describe
+     * @param metrics  timings to show
+     */
+    void write(HudText line, PGraphics g, Snapshot snapshot, Metrics metrics) {
+        boolean bounce = snapshot.getBounceMode();
+        Gravity gravityMode = snapshot.getGravityMode();
+
+        g.textSize(12);
+        g.fill(0);
+        g.textMode(PConstants.SHAPE);
+        g.textAlign(PConstants.LEFT);
+
+        float yLoc = 50;
+        line.add("X: ").add(mouseX).draw(g, 50, yLoc);
+        yLoc += 20;
+        line.add("Y: ").add(mouseY).draw(g, 50, yLoc);
+        yLoc += 20;
+        line.add("Triangle Count: ").add(snapshot.getTriangleCount()).draw(g, 50, yLoc);
+        yLoc += 20;
+        line.add("Bullet Count: ").add(snapshot.getBulletCount()).draw(g, 50, yLoc);
+        yLoc += 20;
+        line.add("Bullet Workers: ").add(snapshot.getWorkers()).draw(g, 50, yLoc);
+        yLoc += 20;
+        if (snapshot.getTileColumns() > 0) {
+            line.add("Tiles (Bullets / ms), ").add(snapshot.getMigrated()).add(" changed tile:").draw(g, 50, yLoc);
+            yLoc += 20;
+            for (int r = 0; r < snapshot.getTileRows(); r++) {
+                for (int c = 0; c < snapshot.getTileColumns(); c++) {
+                    int t = r * snapshot.getTileColumns() + c;
+                    line.pad(snapshot.getTileBullets(t), 6).add(" / ").add(snapshot.getTileTime(t) / 1e6, 2).add("  ");
+                }
+                line.draw(g, 50, yLoc);
+                yLoc += 20;
+            }
+        }
+        line.add("FPS: ").add((int) frameRate).draw(g, 50, yLoc);
+        yLoc += 20;
+        if (viewer != null) {
+            line.add("Stream Rate: ").add(viewer.getFrameRate()).add(" frames/s").add(viewer.isConnected() ? "" : " (connecting)");
+        } else {
+            line.add("Sim Rate: ").add(sim.getStepRate()).add(" steps/s");
+        }
+        line.draw(g, 50, yLoc);
+        yLoc += 20;
+        if (bounce) {
+            g.text("Bounce: ON", 50, yLoc);
+        } else {
+            g.text("Bounce: OFF", 50, yLoc);
+        }
+        yLoc += 20;
+        if (snapshot.getHitMode()) {
+            g.text("Hits: ON", 50, yLoc);
+        } else {
+            g.text("Hits: OFF", 50, yLoc);
+        }
+        yLoc += 20;
+        if (gravityMode == Gravity.OFF) {
+            g.text("Decay: OFF", 50, yLoc);
+        } else {
+            line.add("Decay: ").add(snapshot.getDecay()).draw(g, 50, yLoc);
+        }
+        yLoc += 20;
+        line.add("Gravity Mode: ").add(gravityMode.name()).draw(g, 50, yLoc);
+        yLoc += 20;
+        line.add("Quality: ").add(quality.getLabel()).add(governor.isFixed() ? " (fixed, " : " (auto, ")
+                .add(governor.getBudgetMs(), 1).add(" ms budget)").draw(g, 50, yLoc);
+        yLoc += 20;
+        if (server != null) {
+            line.add("Serving: ").add(server.getViewers()).add(" viewers, ")
+                    .add(server.getFrameBytes() / 1024.0, 1).add(" KB/frame").draw(g, 50, yLoc);
+            yLoc += 20;
+        }
+        if (capture != null) {
+            line.add("Capture: ").add(capturing ? capture.getFormat() : "PAUSED").add(", ")
+                    .add(capture.getQueued()).add(" queued, ")
+                    .add(capture.getWritten()).add(" written, ")
+                    .add(capture.getDropped()).add(" dropped").draw(g, 50, yLoc);
+            yLoc += 20;
+        }
+
+        //  Timings over the last second, in milliseconds
+        yLoc += 20;
+        g.text("Phase (p50 / p99 / max ms)", 50, yLoc);
+        for (Phase phase : PHASES) {
+            yLoc += 20;
+            line.add(phase.getLabel()).add(": ").add(metrics.getP50(phase) / 1e6, 3)
+                    .add(" / ").add(metrics.getP99(phase) / 1e6, 3)
+                    .add(" / ").add(metrics.getMax(phase) / 1e6, 3).draw(g, 50, yLoc);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package me.paul.triangles;
+
+import processing.core.PGraphics;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * One line of HUD text, built up piece by piece and then drawn.
+ * The line and the characters handed to the PGraphics are reused for every line,
+ * so writing the HUD makes no Strings at all, where String.format and + would make several per line.
+ * <p>
+ * Numbers with decimals are written with a fixed amount of them, like %.3f,
+ * rounding half away from zero
+ * @version 1.0
+ */
+
+class HudText {
+
+    private static final long[] POWERS = {1, 10, 100, 1000, 10000, 100000, 1000000};
+
+    private final StringBuilder line;
+    private char[] chars;
+
+    HudText() {
+        line = new StringBuilder(128);
+        chars = new char[128];
+    }
+
+    HudText add(String text) {
+        line.append(text);
+        return this;
+    }
+
+    HudText add(long value) {
+        line.append(value);
+        return this;
+    }
+
+    /**
+     * Adds a float the way + would, as the shortest decimal that reads back as it
+     */
+    HudText add(float value) {
+        line.append(value);
+        return this;
+    }
+
+    /**
+     * Adds a number with a fixed amount of decimals
+     *
+     * @param value    the number
+     * @param decimals amount of decimals, from 0 to 6
+     * @return this line
+     */
+    HudText add(double value, int decimals) {
+        long scale = POWERS[decimals];
+        long scaled = Math.round(Math.abs(value) * scale);
+        if (value < 0 && scaled != 0) {
+            line.append('-');
+        }
+        line.append(scaled / scale);
+        if (decimals > 0) {
+            line.append('.');
+            long fraction = scaled % scale;
+            for (long p = scale / 10; p > fraction && p > 1; p /= 10) {
+                line.append('0');
+            }
+            line.append(fraction);
+        }
+        return this;
+    }
+
+    /**
+     * Adds a whole number right aligned in a column, like %6d
+     *
+     * @param value the number
+     * @param width least amount of characters to take up
+     * @return this line
+     */
+    HudText pad(long value, int width) {
+        int digits = value < 0 ? 2 : 1;
+        for (long rest = Math.abs(value / 10); rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = digits; i < width; i++) {
+            line.append(' ');
+        }
+        line.append(value);
+        return this;
+    }
+
+    /**
+     * Draws the line and starts a new one
+     *
+     * @param g where to draw
+     * @param x horizontal location, as text() takes it
+     * @param y vertical location, as text() takes it
+     */
+    void draw(PGraphics g, float x, float y) {
+        int length = line.length();
+        if (chars.length < length) {
+            chars = new char[length * 2];
+        }
+        line.getChars(0, length, chars, 0);
+        g.text(chars, 0, length, x, y);
+        line.setLength(0);
+    }
+}
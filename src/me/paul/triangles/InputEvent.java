@@ -0,0 +1,145 @@
+package me.paul.triangles;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * One key or mouse button going down or up,
+ * waiting to be played into the World before its next step.
+ * <p>
+ * Events are plain data so they can be written to a recording
+ * and read back later exactly as they were
+ * @version 1.0
+ */
+
+class InputEvent {
+
+    /**
+     * Kinds of event, also their tags in a recording
+     */
+    static final byte KEY_PRESSED = 3;
+    static final byte KEY_RELEASED = 4;
+    static final byte MOUSE_PRESSED = 5;
+    static final byte MOUSE_RELEASED = 6;
+
+    private final byte type;
+
+    /**
+     * Key character and code, for key events
+     */
+    private final char key;
+    private final int keyCode;
+
+    /**
+     * Mouse button and location, for mouse events
+     */
+    private final int button;
+    private final int mouseX;
+    private final int mouseY;
+
+    private InputEvent(byte type_, char key_, int keyCode_, int button_, int mouseX_, int mouseY_) {
+        type = type_;
+        key = key_;
+        keyCode = keyCode_;
+        button = button_;
+        mouseX = mouseX_;
+        mouseY = mouseY_;
+    }
+
+    static InputEvent keyPressed(char k, int kc) {
+        return new InputEvent(KEY_PRESSED, k, kc, 0, 0, 0);
+    }
+
+    static InputEvent keyReleased(char k, int kc) {
+        return new InputEvent(KEY_RELEASED, k, kc, 0, 0, 0);
+    }
+
+    static InputEvent mousePressed(int mb, int x, int y) {
+        return new InputEvent(MOUSE_PRESSED, (char) 0, 0, mb, x, y);
+    }
+
+    static InputEvent mouseReleased(int mb) {
+        return new InputEvent(MOUSE_RELEASED, (char) 0, 0, mb, 0, 0);
+    }
+
+    /**
+     * Plays this event into the input state and the World
+     *
+     * @param input the input state to update
+     * @param world the World to act on
+     */
+    void apply(InputState input, World world) {
+        switch (type) {
+            case KEY_PRESSED:
+                input.keyPressed(key, keyCode);
+                world.keyPressed(key);
+                break;
+            case KEY_RELEASED:
+                input.keyReleased(key, keyCode);
+                break;
+            case MOUSE_PRESSED:
+                input.setMouse(mouseX, mouseY);
+                input.mousePressed(button);
+                world.mousePressed(button, input);
+                break;
+            case MOUSE_RELEASED:
+                input.mouseReleased(button);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Writes this event, tag first
+     *
+     * @param out where to write
+     * @throws IOException if writing fails
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeByte(type);
+        switch (type) {
+            case KEY_PRESSED:
+            case KEY_RELEASED:
+                out.writeChar(key);
+                out.writeShort(keyCode);
+                break;
+            case MOUSE_PRESSED:
+                out.writeByte(button);
+                out.writeShort(mouseX);
+                out.writeShort(mouseY);
+                break;
+            case MOUSE_RELEASED:
+                out.writeByte(button);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Reads an event whose tag has already been read
+     *
+     * @param type the tag
+     * @param in   where to read the rest from
+     * @return the event
+     * @throws IOException if reading fails, or the tag is not an event
+     */
+    static InputEvent read(byte type, DataInputStream in) throws IOException {
+        switch (type) {
+            case KEY_PRESSED:
+                return keyPressed(in.readChar(), in.readShort());
+            case KEY_RELEASED:
+                return keyReleased(in.readChar(), in.readShort());
+            case MOUSE_PRESSED:
+                return mousePressed(in.readUnsignedByte(), in.readShort(), in.readShort());
+            case MOUSE_RELEASED:
+                return mouseReleased(in.readUnsignedByte());
+            default:
+                throw new IOException("Unknown input event tag " + type);
+        }
+    }
+}
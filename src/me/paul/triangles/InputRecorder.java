@@ -0,0 +1,120 @@
+package me.paul.triangles;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Writes every step of input to a compact binary file,
+ * to be played back later by an InputReplay.
+ * <p>
+ * After a short header, each step is written as its events in the order
+ * they were played, the mouse location and world size if either changed,
+ * and an end of step tag. A step without any input is one byte.
+ * The held keys and buttons are not written out,
+ * they follow from replaying the same events from the start
+ * @version 1.0
+ */
+
+class InputRecorder {
+
+    /**
+     * Start of every recording, and its format version
+     */
+    static final int MAGIC = 0x54524952;
+    static final short VERSION = 1;
+
+    /**
+     * File the window records to, unless told otherwise
+     * Set with -Dtriangles.record=path, off by default
+     */
+    static final String DEFAULT_PATH = System.getProperty("triangles.record");
+
+    /**
+     * Tags of the records that are not events
+     */
+    static final byte STEP = 0;
+    static final byte MOUSE = 1;
+    static final byte SIZE = 2;
+
+    private final DataOutputStream out;
+
+    /**
+     * Mouse location and world size last written
+     */
+    private int mouseX;
+    private int mouseY;
+    private int width;
+    private int height;
+
+    /**
+     * Constructor for an InputRecorder object
+     *
+     * @param path    file to write to, replaced if it exists
+     * @param width_  width of the world at the start
+     * @param height_ height of the world at the start
+     * @throws IOException if the file cannot be written
+     */
+
+    InputRecorder(String path, int width_, int height_) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)));
+        width = width_;
+        height = height_;
+        mouseX = 0;
+        mouseY = 0;
+
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort(width);
+        out.writeShort(height);
+    }
+
+    /**
+     * Writes an event played before the coming step
+     *
+     * @param event the event
+     * @throws IOException if writing fails
+     */
+    void event(InputEvent event) throws IOException {
+        event.write(out);
+    }
+
+    /**
+     * Ends the current step
+     *
+     * @param mouseX_ location of the mouse during the step
+     * @param mouseY_ location of the mouse during the step
+     * @param width_  width of the world during the step
+     * @param height_ height of the world during the step
+     * @throws IOException if writing fails
+     */
+    void step(int mouseX_, int mouseY_, int width_, int height_) throws IOException {
+        if (mouseX_ != mouseX || mouseY_ != mouseY) {
+            mouseX = mouseX_;
+            mouseY = mouseY_;
+            out.writeByte(MOUSE);
+            out.writeShort(mouseX);
+            out.writeShort(mouseY);
+        }
+        if (width_ != width || height_ != height) {
+            width = width_;
+            height = height_;
+            out.writeByte(SIZE);
+            out.writeShort(width);
+            out.writeShort(height);
+        }
+        out.writeByte(STEP);
+    }
+
+    /**
+     * Finishes the recording
+     *
+     * @throws IOException if writing fails
+     */
+    void close() throws IOException {
+        out.close();
+    }
+}
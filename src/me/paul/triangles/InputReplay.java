@@ -0,0 +1,131 @@
+package me.paul.triangles;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Plays back a file written by an InputRecorder, one step at a time.
+ * Every step gets exactly the events, mouse location and world size it had
+ * when recorded, so a World stepped from the same start
+ * goes through exactly the same states, in a window or headless
+ * @version 1.0
+ */
+
+class InputReplay {
+
+    /**
+     * File the window plays back, unless told otherwise
+     * Set with -Dtriangles.replay=path, off by default
+     */
+    static final String DEFAULT_PATH = System.getProperty("triangles.replay");
+
+    private final DataInputStream in;
+
+    /**
+     * Size of the world when recording started
+     */
+    private final int startWidth;
+    private final int startHeight;
+
+    /**
+     * Mouse location and world size of the current step
+     */
+    private int mouseX;
+    private int mouseY;
+    private int width;
+    private int height;
+
+    private boolean finished;
+
+    /**
+     * Constructor for an InputReplay object
+     *
+     * @param path file to play back
+     * @throws IOException if the file cannot be read, or is not a recording
+     */
+
+    InputReplay(String path) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)));
+
+        if (in.readInt() != InputRecorder.MAGIC) {
+            in.close();
+            throw new IOException(path + " is not an input recording");
+        }
+        short version = in.readShort();
+        if (version != InputRecorder.VERSION) {
+            in.close();
+            throw new IOException(path + " is recording version " + version + ", expected " + InputRecorder.VERSION);
+        }
+
+        startWidth = in.readShort();
+        startHeight = in.readShort();
+        width = startWidth;
+        height = startHeight;
+        mouseX = 0;
+        mouseY = 0;
+        finished = false;
+    }
+
+    /**
+     * Plays the next step of input into the input state and the World,
+     * leaving the World ready to be stepped
+     *
+     * @param input the input state to update
+     * @param world the World to act on
+     * @return false once the recording has run out, with nothing played
+     * @throws IOException if reading fails
+     */
+    boolean next(InputState input, World world) throws IOException {
+        if (finished) {
+            return false;
+        }
+
+        try {
+            while (true) {
+                byte tag = in.readByte();
+                if (tag == InputRecorder.STEP) {
+                    break;
+                } else if (tag == InputRecorder.MOUSE) {
+                    mouseX = in.readShort();
+                    mouseY = in.readShort();
+                } else if (tag == InputRecorder.SIZE) {
+                    width = in.readShort();
+                    height = in.readShort();
+                } else {
+                    InputEvent.read(tag, in).apply(input, world);
+                }
+            }
+        } catch (EOFException e) {
+            //  A cut off last step is never stepped, it ends the recording
+            finished = true;
+            in.close();
+            return false;
+        }
+
+        world.setSize(width, height);
+        input.setMouse(mouseX, mouseY);
+        return true;
+    }
+
+    void close() throws IOException {
+        finished = true;
+        in.close();
+    }
+
+    int getStartWidth() {
+        return startWidth;
+    }
+
+    int getStartHeight() {
+        return startHeight;
+    }
+
+    boolean isFinished() {
+        return finished;
+    }
+}
@@ -0,0 +1,112 @@
+package me.paul.triangles;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Holds the state of the mouse and keyboard for one step of the World.
+ * Filled in by whoever owns the input (the window, or a headless runner)
+ * and read by the World, so the simulation never touches a PApplet
+ * @version 1.0
+ */
+
+class InputState {
+
+    /**
+     * Current location of the mouse
+     */
+    private int mouseX;
+    private int mouseY;
+
+    /**
+     * Arrays to save state of all key and mouse presses concurrently
+     * (currently not supported by processing, unfortunately)
+     */
+    private boolean[] mouseButtons;
+    private boolean[] keys;
+    private boolean[] keyCodes;
+
+    /**
+     * Constructor for an InputState object
+     * Nothing is pressed and the mouse starts at the origin
+     */
+
+    InputState() {
+        mouseX = 0;
+        mouseY = 0;
+        mouseButtons = new boolean[40];
+        keys = new boolean[128];
+        keyCodes = new boolean[41];
+    }
+
+    /**
+     * Sets the location of the mouse
+     *
+     * @param mouseX_ horizontal location of the mouse
+     * @param mouseY_ vertical location of the mouse
+     */
+    void setMouse(int mouseX_, int mouseY_) {
+        mouseX = mouseX_;
+        mouseY = mouseY_;
+    }
+
+    /**
+     * Saves a key as held down
+     *
+     * @param k  character of the key
+     * @param kc key code of the key, used when it has no character
+     */
+    void keyPressed(char k, int kc) {
+        if (k < keys.length) {
+            keys[k] = true;
+        } else if (kc < keyCodes.length) {
+            keyCodes[kc] = true;
+        }
+    }
+
+    /**
+     * Saves a key as released
+     *
+     * @param k  character of the key
+     * @param kc key code of the key, used when it has no character
+     */
+    void keyReleased(char k, int kc) {
+        if (k < keys.length) {
+            keys[k] = false;
+        } else if (kc < keyCodes.length) {
+            keyCodes[kc] = false;
+        }
+    }
+
+    void mousePressed(int mb) {
+        mouseButtons[mb] = true;
+    }
+
+    void mouseReleased(int mb) {
+        mouseButtons[mb] = false;
+    }
+
+    int getMouseX() {
+        return mouseX;
+    }
+
+    int getMouseY() {
+        return mouseY;
+    }
+
+    boolean[] getMouseButtons() {
+        return mouseButtons;
+    }
+
+    boolean[] getKeys() {
+        return keys;
+    }
+
+    /**
+     * Getter method for keyCodes
+     *
+     * @return the keyCodes array
+     */
+    boolean[] getKeyCodes() {
+        return keyCodes;
+    }
+}
@@ -0,0 +1,126 @@
+package me.paul.triangles;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Runs a Scenario without a window, as fast as the CPU allows,
+ * and reports how the World kept up.
+ * Prints steps per second, time per Bullet update, step time percentiles
+ * and peak heap use, one "key: value" per line so runs are easy to compare.
+ * <p>
+ * With -Dtriangles.restore=path the World starts from a checkpoint instead,
+ * still driven by the Scenario from there.
+ * <p>
+ * Usage: LoadTest scenario [scale] [frames] [workers]
+ * @version 1.0
+ */
+
+class LoadTest {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: LoadTest scenario [scale] [frames] [workers]");
+            System.exit(2);
+        }
+
+        Scenario scenario = Scenario.load(args[0]);
+        int scale = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        int frames = args.length > 2 ? Integer.parseInt(args[2]) : scenario.getFrames();
+        int workers = args.length > 3 ? Integer.parseInt(args[3]) : World.DEFAULT_WORKERS;
+
+        InputState input = new InputState();
+        World world = scenario.start(scale, workers, input);
+        long restoreTime = -1;
+        if (Checkpoint.DEFAULT_RESTORE != null) {
+            long start = System.nanoTime();
+            Checkpoint.restore(world, Checkpoint.DEFAULT_RESTORE);
+            restoreTime = System.nanoTime() - start;
+        }
+        Histogram steps = new Histogram();
+
+        long bulletTime = 0;
+        long bulletSteps = 0;
+        int peakTriangles = 0;
+        int peakBullets = 0;
+        long subStepped = 0;
+
+        resetPeakHeap();
+        long runStart = System.nanoTime();
+        for (int frame = 0; frame < frames; frame++) {
+            scenario.drive(world, input, frame, scale);
+
+            //  Bullets updated this step, before any are culled
+            int bullets = world.getBullets().size();
+
+            long start = System.nanoTime();
+            world.step(input);
+            long end = System.nanoTime();
+
+            steps.record(end - start);
+            bulletTime += world.getBulletUpdateTime();
+            bulletSteps += bullets;
+            peakTriangles = Math.max(peakTriangles, world.getTriangles().size());
+            peakBullets = Math.max(peakBullets, world.getBullets().getLiveCount());
+            subStepped += world.getBullets().getSubStepped();
+        }
+        long runEnd = System.nanoTime();
+
+        long[] counts = new long[Histogram.BUCKETS];
+        steps.copyCounts(counts);
+        long max = steps.takeMax();
+        double seconds = (runEnd - runStart) / 1e9;
+
+        System.out.printf("scenario: %s%n", args[0]);
+        System.out.printf("scale: %d%n", scale);
+        System.out.printf("workers: %d%n", world.getBullets().getWorkers());
+        System.out.printf("kernel: %s%n", world.getBullets().getKernel().getName());
+        TileGrid tiles = world.getBullets().getTiles();
+        if (tiles != null) {
+            System.out.printf("tiles: %dx%d%n", tiles.getColumns(), tiles.getRows());
+        }
+        if (restoreTime >= 0) {
+            System.out.printf("restored: %s%n", Checkpoint.DEFAULT_RESTORE);
+            System.out.printf("restore_ms: %.3f%n", restoreTime / 1e6);
+        }
+        System.out.printf("frames: %d%n", frames);
+        System.out.printf("seconds: %.3f%n", seconds);
+        System.out.printf("steps_per_sec: %.1f%n", frames / seconds);
+        System.out.printf("ns_per_bullet_update: %.2f%n", bulletSteps == 0 ? 0 : bulletTime / (double) bulletSteps);
+        System.out.printf("sub_stepped_per_step: %.1f%n", subStepped / (double) frames);
+        System.out.printf("step_p50_ms: %.3f%n", Math.min(Histogram.percentile(counts, frames, 50), max) / 1e6);
+        System.out.printf("step_p99_ms: %.3f%n", Math.min(Histogram.percentile(counts, frames, 99), max) / 1e6);
+        System.out.printf("step_max_ms: %.3f%n", max / 1e6);
+        System.out.printf("peak_triangles: %d%n", peakTriangles);
+        System.out.printf("peak_bullets: %d%n", peakBullets);
+        System.out.printf("peak_heap_mb: %.1f%n", peakHeap() / (1024.0 * 1024.0));
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Sums the peak use of every heap pool since the last reset
+     * Pools peak at different times, so this can be a little over the true peak
+     *
+     * @return peak heap use, in bytes
+     */
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,205 @@
+package me.paul.triangles;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Timings of every Phase of a frame.
+ * Each Phase records into its own Histogram, without allocating,
+ * from whichever thread runs it.
+ * <p>
+ * Once a second the counts of that second are rolled up
+ * into a p50, p99 and max for every Phase, which the HUD shows.
+ * If a CSV file is given, every rollup is also added to it as a row,
+ * so frame times can be compared between builds.
+ * Set the file with -Dtriangles.metrics=path
+ * @version 1.0
+ */
+
+class Metrics {
+
+    /**
+     * Length of a rollup
+     */
+    static final long ROLLUP_NANOS = 1000000000L;
+
+    /**
+     * File to stream rollups to, unless given to the constructor
+     * Set with -Dtriangles.metrics=path, off by default
+     */
+    static final String DEFAULT_CSV = System.getProperty("triangles.metrics");
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final Histogram[] histograms;
+
+    /**
+     * Counts of every Phase at the last rollup, and during it
+     */
+    private final long[][] lastCounts;
+    private final long[] window;
+
+    /**
+     * Results of the last rollup, per Phase, in nanoseconds
+     */
+    private final long[] count;
+    private final long[] p50;
+    private final long[] p99;
+    private final long[] max;
+
+    private long start;
+    private long rollupStart;
+
+    private PrintWriter csv;
+
+    /**
+     * Constructor for a Metrics object
+     *
+     * @param csvPath file to stream rollups to, or null for none
+     */
+
+    Metrics(String csvPath) {
+        histograms = new Histogram[PHASES.length];
+        lastCounts = new long[PHASES.length][Histogram.BUCKETS];
+        for (int p = 0; p < PHASES.length; p++) {
+            histograms[p] = new Histogram();
+        }
+        window = new long[Histogram.BUCKETS];
+
+        count = new long[PHASES.length];
+        p50 = new long[PHASES.length];
+        p99 = new long[PHASES.length];
+        max = new long[PHASES.length];
+
+        start = System.nanoTime();
+        rollupStart = start;
+
+        if (csvPath != null) {
+            openCsv(csvPath);
+        }
+    }
+
+    /**
+     * Records how long one run of a Phase took
+     * Only to be called from the one thread running that Phase
+     *
+     * @param phase the Phase
+     * @param nanos how long it took, in nanoseconds
+     */
+    void record(Phase phase, long nanos) {
+        histograms[phase.ordinal()].record(nanos);
+    }
+
+    /**
+     * Rolls up the last second if it is over,
+     * to be called once a frame from the window thread
+     *
+     * @param now the time, in System.nanoTime()
+     * @return true if a rollup was made
+     */
+    boolean tick(long now) {
+        if (now - rollupStart < ROLLUP_NANOS) {
+            return false;
+        }
+        rollup();
+        if (csv != null) {
+            writeRow((now - start) / 1e9);
+        }
+        rollupStart = now;
+        return true;
+    }
+
+    /**
+     * Works out the p50, p99 and max of every Phase
+     * from the counts since the last rollup
+     */
+    private void rollup() {
+        for (int p = 0; p < PHASES.length; p++) {
+            long[] last = lastCounts[p];
+            histograms[p].copyCounts(window);
+
+            long total = 0;
+            for (int b = 0; b < Histogram.BUCKETS; b++) {
+                long now = window[b];
+                window[b] = now - last[b];
+                last[b] = now;
+                total += window[b];
+            }
+
+            //  A bucket's top can be past the true max, never show more than it
+            long m = histograms[p].takeMax();
+            count[p] = total;
+            max[p] = m;
+            p50[p] = Math.min(Histogram.percentile(window, total, 50), m);
+            p99[p] = Math.min(Histogram.percentile(window, total, 99), m);
+        }
+    }
+
+    private void openCsv(String path) {
+        try {
+            csv = new PrintWriter(new FileWriter(path));
+        } catch (IOException e) {
+            System.err.println("Metrics: could not open " + path + ", " + e.getMessage());
+            return;
+        }
+
+        StringBuilder header = new StringBuilder("time_s");
+        for (Phase phase : PHASES) {
+            String c = phase.getColumn();
+            header.append(',').append(c).append("_count")
+                    .append(',').append(c).append("_p50_us")
+                    .append(',').append(c).append("_p99_us")
+                    .append(',').append(c).append("_max_us");
+        }
+        csv.println(header);
+        csv.flush();
+    }
+
+    private void writeRow(double time) {
+        StringBuilder row = new StringBuilder();
+        row.append(String.format("%.3f", time));
+        for (int p = 0; p < PHASES.length; p++) {
+            row.append(',').append(count[p])
+                    .append(',').append(String.format("%.3f", p50[p] / 1e3))
+                    .append(',').append(String.format("%.3f", p99[p] / 1e3))
+                    .append(',').append(String.format("%.3f", max[p] / 1e3));
+        }
+        csv.println(row);
+        csv.flush();
+    }
+
+    /**
+     * Closes the CSV file, if there is one
+     */
+    void close() {
+        if (csv != null) {
+            csv.close();
+            csv = null;
+        }
+    }
+
+    /**
+     * Getter method for the amount of runs of a Phase in the last rollup
+     *
+     * @param phase the Phase
+     * @return amount of runs
+     */
+    long getCount(Phase phase) {
+        return count[phase.ordinal()];
+    }
+
+    long getP50(Phase phase) {
+        return p50[phase.ordinal()];
+    }
+
+    long getP99(Phase phase) {
+        return p99[phase.ordinal()];
+    }
+
+    long getMax(Phase phase) {
+        return max[phase.ordinal()];
+    }
+}
@@ -0,0 +1,45 @@
+package me.paul.triangles;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Parts of a frame that are timed by Metrics.
+ * The first few run on the Simulation thread, once per step,
+ * the rest on the window thread, once per drawn frame
+ * @version 1.0
+ */
+
+enum Phase {
+
+    STEP("Step", "step"),
+    BULLET_UPDATE("Bullet Update", "bullet_update"),
+    TRIANGLE_UPDATE("Triangle Update", "triangle_update"),
+    HITS("Hits", "hits"),
+    FRAME("Frame", "frame"),
+    BACKGROUND("Background", "background"),
+    BULLET_DRAW("Bullet Draw", "bullet_draw"),
+    TRIANGLE_DRAW("Triangle Draw", "triangle_draw"),
+    HUD("HUD", "hud"),
+    CONTROLS("Controls", "controls"),
+    CAPTURE("Capture", "capture"),
+    STREAM("Stream", "stream");
+
+    /**
+     * Name shown on the HUD, and column prefix in the CSV file
+     */
+    private final String label;
+    private final String column;
+
+    Phase(String label_, String column_) {
+        label = label_;
+        column = column_;
+    }
+
+    String getLabel() {
+        return label;
+    }
+
+    String getColumn() {
+        return column;
+    }
+}
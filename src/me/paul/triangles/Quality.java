@@ -0,0 +1,71 @@
+package me.paul.triangles;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Levels of drawing detail a FrameGovernor steps through, from full detail down.
+ * Each level gives up a little more than the one before:
+ * how often the HUD is redrawn, the black outline of every Bullet,
+ * how round a Bullet is, and at the last two drawing Bullets at all,
+ * first as plain squares and then only as a map of how many are where
+ * @version 1.0
+ */
+
+enum Quality {
+
+    FULL("Full", 1, true, 12, false, false),
+    SLOW_HUD("Slow HUD", 6, true, 12, false, false),
+    NO_OUTLINE("No Outlines", 6, false, 12, false, false),
+    LOW_DETAIL("Low Detail", 6, false, 6, false, false),
+    POINTS("Points", 15, false, 6, true, false),
+    DENSITY("Density Map", 15, false, 6, false, true);
+
+    private final String label;
+
+    /**
+     * Frames between HUD redraws, 1 to draw it straight to the window every frame
+     */
+    private final int hudInterval;
+
+    /**
+     * How Bullets are drawn: with an outline or not, triangles per disc,
+     * as squares, or as a density map
+     */
+    private final boolean outline;
+    private final int segments;
+    private final boolean points;
+    private final boolean density;
+
+    Quality(String label_, int hudInterval_, boolean outline_, int segments_, boolean points_, boolean density_) {
+        label = label_;
+        hudInterval = hudInterval_;
+        outline = outline_;
+        segments = segments_;
+        points = points_;
+        density = density_;
+    }
+
+    String getLabel() {
+        return label;
+    }
+
+    int getHudInterval() {
+        return hudInterval;
+    }
+
+    boolean getOutline() {
+        return outline;
+    }
+
+    int getSegments() {
+        return segments;
+    }
+
+    boolean getPoints() {
+        return points;
+    }
+
+    boolean getDensity() {
+        return density;
+    }
+}
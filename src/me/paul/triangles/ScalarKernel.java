@@ -0,0 +1,90 @@
+package me.paul.triangles;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * BulletKernel moving one Bullet at a time.
+ * Runs anywhere, and finishes the slots left over by wider kernels
+ * @version 1.0
+ */
+
+class ScalarKernel implements BulletKernel {
+
+    static final String NAME = "scalar";
+
+    @Override
+    public int integrate(float[] x, float[] y, float[] vx, float[] vy, float[] ax, float[] ay,
+                         int[] owner, int[] expires, boolean[] alive, int from, int to, BulletFrame frame) {
+        return pack(x, y, vx, vy, ax, ay, owner, expires, alive, from, to, from, frame) - from;
+    }
+
+    /**
+     * Integrates a range of Bullet slots, packing survivors from a given slot on
+     *
+     * @param from first slot to move
+     * @param to   slot after the last one to move
+     * @param live slot the first survivor goes to, at most from
+     * @return slot after the last survivor
+     */
+    static int pack(float[] x, float[] y, float[] vx, float[] vy, float[] ax, float[] ay,
+                    int[] owner, int[] expires, boolean[] alive, int from, int to, int live, BulletFrame frame) {
+        float decay = frame.getDecay();
+        boolean bounce = frame.getBounce();
+        float minX = frame.getMinX();
+        float minY = frame.getMinY();
+        float maxX = frame.getMaxX();
+        float maxY = frame.getMaxY();
+        float cullMinX = frame.getCullMinX();
+        float cullMinY = frame.getCullMinY();
+        float cullMaxX = frame.getCullMaxX();
+        float cullMaxY = frame.getCullMaxY();
+        int step = frame.getStep();
+        int minOwner = frame.getMinOwner();
+
+        for (int i = from; i < to; i++) {
+            //  Killed since the last update, too old, or owner evicted
+            if (!alive[i] || expires[i] <= step || owner[i] < minOwner) {
+                continue;
+            }
+
+            float nvx = (vx[i] + ax[i]) * decay;
+            float nvy = (vy[i] + ay[i]) * decay;
+            float nx = x[i] + nvx;
+            float ny = y[i] + nvy;
+
+            if (bounce) {
+                if (nx < minX) {
+                    nvx = -nvx;
+                    nx = minX;
+                } else if (nx > maxX) {
+                    nvx = -nvx;
+                    nx = maxX;
+                }
+                if (ny < minY) {
+                    nvy = -nvy;
+                    ny = minY;
+                } else if (ny > maxY) {
+                    nvy = -nvy;
+                    ny = maxY;
+                }
+            } else if (nx < cullMinX || nx > cullMaxX || ny < cullMinY || ny > cullMaxY) {
+                continue;
+            }
+
+            x[live] = nx;
+            y[live] = ny;
+            vx[live] = nvx;
+            vy[live] = nvy;
+            owner[live] = owner[i];
+            expires[live] = expires[i];
+            alive[live] = true;
+            live++;
+        }
+        return live;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}
@@ -0,0 +1,372 @@
+package me.paul.triangles;
+
+import processing.core.PConstants;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * A scripted load for a World, read from a plain text file.
+ * Sets the World up, then drives it every frame in place of a player,
+ * spawning Triangles, firing, and moving the mouse.
+ * <p>
+ * Every line is a keyword followed by its values, and # starts a comment:
+ * <pre>
+ * frames 3600                      frames to run for
+ * size 1600 800                    size of the world
+ * seed 1                           seed of the random spawn pattern
+ * triangle_limit 500               most Triangles, oldest are removed past it
+ * bullet_limit 1500                most Bullets, the oldest make way past it
+ * bullet_ttl 600                   frames a Bullet lives for, 0 for forever
+ * gravity MULTI_POINT              OFF, SIMPLE, TRUE, POINT or MULTI_POINT
+ * gravity_point 400 400            can repeat, the first moves the default point
+ * bounce on                        on or off
+ * hits off                         on or off
+ * decay 0.99                       velocity kept every frame under gravity
+ * mouse 800 400                    fixed mouse location
+ * mouse_orbit 800 400 300 240      mouse circles a centre, radius, frames per orbit
+ * steer LEFT                       arrow held all run, UP, DOWN, LEFT, RIGHT or NONE
+ * spawn grid 500                   Triangles evenly over the world
+ * spawn ring 800 400 300 100       Triangles in a circle, centre, radius, count
+ * spawn random 500                 Triangles at random locations
+ * spawn_every 4 10                 every 4 frames, 10 more Triangles at random
+ * fire_every 4                     every 4 frames, every Triangle fires
+ * </pre>
+ * A scale multiplies every limit and Triangle count,
+ * so one file can be run at many times its size
+ * @version 1.0
+ */
+
+class Scenario {
+
+    /**
+     * Kinds of initial spawn
+     */
+    private static final String GRID = "grid";
+    private static final String RING = "ring";
+    private static final String RANDOM = "random";
+
+    private int frames;
+    private int width;
+    private int height;
+    private long seed;
+    private int triangleLimit;
+    private int bulletLimit;
+    private int bulletTtl;
+    private Gravity gravityMode;
+    private ArrayList<float[]> gravityPoints;
+    private boolean bounce;
+    private boolean hits;
+    private float decay;
+
+    /**
+     * Mouse location, or orbit if orbitPeriod is more than 0
+     */
+    private float mouseX;
+    private float mouseY;
+    private float orbitRadius;
+    private int orbitPeriod;
+
+    /**
+     * Arrow key held all run, or 0 for none
+     */
+    private int steer;
+
+    /**
+     * Initial spawns, each a kind followed by its values
+     */
+    private ArrayList<String> spawnKinds;
+    private ArrayList<float[]> spawnValues;
+
+    private int spawnEvery;
+    private int spawnCount;
+    private int fireEvery;
+
+    private Random random;
+
+    /**
+     * Constructor for a Scenario object, with every setting at its default
+     */
+
+    Scenario() {
+        frames = 3600;
+        width = 1600;
+        height = 800;
+        seed = 1;
+        triangleLimit = World.TRIANGLE_LIMIT;
+        bulletLimit = World.BULLET_LIMIT;
+        bulletTtl = 0;
+        gravityMode = Gravity.OFF;
+        gravityPoints = new ArrayList<>();
+        bounce = false;
+        hits = false;
+        decay = 0.99f;
+        mouseX = width / 2;
+        mouseY = height / 2;
+        orbitRadius = 0;
+        orbitPeriod = 0;
+        steer = 0;
+        spawnKinds = new ArrayList<>();
+        spawnValues = new ArrayList<>();
+        spawnEvery = 0;
+        spawnCount = 0;
+        fireEvery = 0;
+    }
+
+    /**
+     * Reads a Scenario from a file
+     *
+     * @param path the file
+     * @return the Scenario
+     * @throws IOException if the file cannot be read, or has a bad line
+     */
+    static Scenario load(String path) throws IOException {
+        Scenario scenario = new Scenario();
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            String line;
+            int number = 0;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                int comment = line.indexOf('#');
+                if (comment >= 0) {
+                    line = line.substring(0, comment);
+                }
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+
+                try {
+                    scenario.parse(line.split("\\s+"));
+                } catch (RuntimeException e) {
+                    throw new IOException(path + ":" + number + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return scenario;
+    }
+
+    /**
+     * Reads one line of a Scenario
+     *
+     * @param words the line, split into words
+     */
+    private void parse(String[] words) {
+        String keyword = words[0];
+        switch (keyword) {
+            case "frames":
+                frames = Integer.parseInt(words[1]);
+                break;
+            case "size":
+                width = Integer.parseInt(words[1]);
+                height = Integer.parseInt(words[2]);
+                break;
+            case "seed":
+                seed = Long.parseLong(words[1]);
+                break;
+            case "triangle_limit":
+                triangleLimit = Integer.parseInt(words[1]);
+                break;
+            case "bullet_limit":
+                bulletLimit = Integer.parseInt(words[1]);
+                break;
+            case "bullet_ttl":
+                bulletTtl = Integer.parseInt(words[1]);
+                break;
+            case "gravity":
+                gravityMode = Gravity.valueOf(words[1]);
+                break;
+            case "gravity_point":
+                gravityPoints.add(new float[]{Float.parseFloat(words[1]), Float.parseFloat(words[2])});
+                break;
+            case "bounce":
+                bounce = onOff(words[1]);
+                break;
+            case "hits":
+                hits = onOff(words[1]);
+                break;
+            case "decay":
+                decay = Float.parseFloat(words[1]);
+                break;
+            case "mouse":
+                mouseX = Float.parseFloat(words[1]);
+                mouseY = Float.parseFloat(words[2]);
+                orbitPeriod = 0;
+                break;
+            case "mouse_orbit":
+                mouseX = Float.parseFloat(words[1]);
+                mouseY = Float.parseFloat(words[2]);
+                orbitRadius = Float.parseFloat(words[3]);
+                orbitPeriod = Integer.parseInt(words[4]);
+                break;
+            case "steer":
+                steer = arrow(words[1]);
+                break;
+            case "spawn":
+                spawn(words);
+                break;
+            case "spawn_every":
+                spawnEvery = Integer.parseInt(words[1]);
+                spawnCount = Integer.parseInt(words[2]);
+                break;
+            case "fire_every":
+                fireEvery = Integer.parseInt(words[1]);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown keyword " + keyword);
+        }
+    }
+
+    private void spawn(String[] words) {
+        String kind = words[1];
+        float[] values = new float[words.length - 2];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Float.parseFloat(words[i + 2]);
+        }
+
+        int expected = kind.equals(RING) ? 4 : 1;
+        if (!kind.equals(GRID) && !kind.equals(RING) && !kind.equals(RANDOM)) {
+            throw new IllegalArgumentException("unknown spawn " + kind);
+        }
+        if (values.length != expected) {
+            throw new IllegalArgumentException("spawn " + kind + " takes " + expected + " values");
+        }
+        spawnKinds.add(kind);
+        spawnValues.add(values);
+    }
+
+    private static boolean onOff(String word) {
+        if (word.equals("on")) {
+            return true;
+        } else if (word.equals("off")) {
+            return false;
+        }
+        throw new IllegalArgumentException("expected on or off, not " + word);
+    }
+
+    private static int arrow(String word) {
+        switch (word) {
+            case "UP":
+                return PConstants.UP;
+            case "DOWN":
+                return PConstants.DOWN;
+            case "LEFT":
+                return PConstants.LEFT;
+            case "RIGHT":
+                return PConstants.RIGHT;
+            case "NONE":
+                return 0;
+            default:
+                throw new IllegalArgumentException("unknown arrow " + word);
+        }
+    }
+
+    /**
+     * Creates the World this Scenario starts with
+     *
+     * @param scale   multiplies every limit and Triangle count
+     * @param workers amount of threads to update Bullets with
+     * @param input   input state to hold the steering key
+     * @return the World, ready for its first frame
+     */
+    World start(int scale, int workers, InputState input) {
+        random = new Random(seed);
+
+        World world = new World(width, height, workers);
+        world.setLimits(triangleLimit * scale, bulletLimit * scale);
+        world.setBulletTtl(bulletTtl);
+        world.setGravityMode(gravityMode);
+        world.setBounceMode(bounce);
+        world.setHitMode(hits);
+        world.setDecay(decay);
+
+        for (int i = 0; i < gravityPoints.size(); i++) {
+            float[] p = gravityPoints.get(i);
+            if (i == 0) {
+                world.setGravityPoint(p[0], p[1]);
+            } else {
+                world.addGravityPoint(p[0], p[1]);
+            }
+        }
+
+        for (int i = 0; i < spawnKinds.size(); i++) {
+            float[] v = spawnValues.get(i);
+            switch (spawnKinds.get(i)) {
+                case GRID:
+                    spawnGrid(world, (int) v[0] * scale);
+                    break;
+                case RING:
+                    spawnRing(world, v[0], v[1], v[2], (int) v[3] * scale);
+                    break;
+                default:
+                    spawnRandom(world, (int) v[0] * scale);
+                    break;
+            }
+        }
+
+        if (steer != 0) {
+            input.keyPressed((char) PConstants.CODED, steer);
+        }
+        return world;
+    }
+
+    /**
+     * Drives the World before one of its frames
+     *
+     * @param world the World
+     * @param input input state to move the mouse in
+     * @param frame the frame about to be stepped, from 0
+     * @param scale multiplies every Triangle count
+     */
+    void drive(World world, InputState input, int frame, int scale) {
+        if (orbitPeriod > 0) {
+            double angle = Math.PI * 2 * frame / orbitPeriod;
+            input.setMouse((int) (mouseX + Math.cos(angle) * orbitRadius), (int) (mouseY + Math.sin(angle) * orbitRadius));
+        } else {
+            input.setMouse((int) mouseX, (int) mouseY);
+        }
+
+        if (spawnEvery > 0 && frame % spawnEvery == 0) {
+            spawnRandom(world, spawnCount * scale);
+            while (world.getTriangles().size() > world.getTriangleLimit()) {
+                world.removeOldest();
+            }
+        }
+        if (fireEvery > 0 && frame % fireEvery == 0) {
+            world.fireAll();
+        }
+    }
+
+    private void spawnGrid(World world, int count) {
+        //  Rows and columns in proportion to the world
+        int cols = Math.max(1, (int) Math.round(Math.sqrt(count * (double) width / height)));
+        int rows = (count + cols - 1) / cols;
+        for (int i = 0; i < count; i++) {
+            float x = (i % cols + 0.5f) * width / cols;
+            float y = (i / cols + 0.5f) * height / rows;
+            world.addTriangle(x, y);
+        }
+    }
+
+    private void spawnRing(World world, float cx, float cy, float radius, int count) {
+        for (int i = 0; i < count; i++) {
+            double angle = Math.PI * 2 * i / count;
+            world.addTriangle(cx + (float) Math.cos(angle) * radius, cy + (float) Math.sin(angle) * radius);
+        }
+    }
+
+    private void spawnRandom(World world, int count) {
+        for (int i = 0; i < count; i++) {
+            world.addTriangle(random.nextFloat() * width, random.nextFloat() * height);
+        }
+    }
+
+    int getFrames() {
+        return frames;
+    }
+}
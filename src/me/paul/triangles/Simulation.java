@@ -0,0 +1,437 @@
+package me.paul.triangles;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Runs the World on its own thread, at a fixed STEPS_PER_SECOND
+ * no matter how fast or slow the window draws.
+ * <p>
+ * Input from the window is queued and played into the World before the next step.
+ * After every batch of steps the World is copied into a Snapshot and published.
+ * Three Snapshots take turns: one being drawn, one being written,
+ * and the newest finished one waiting in between,
+ * so neither thread ever waits on the other
+ * <p>
+ * The input of every step can be written out by an InputRecorder,
+ * or taken from an InputReplay instead of the window.
+ * The World can be saved to and restored from a Checkpoint between steps
+ * @version 1.0
+ */
+
+class Simulation implements Runnable {
+
+    /**
+     * Rate and length of a simulation step
+     */
+    static final int STEPS_PER_SECOND = 60;
+    static final long STEP_NANOS = 1000000000L / STEPS_PER_SECOND;
+
+    /**
+     * Most steps taken in one go to catch up after falling behind
+     * Any time missed past that is dropped, slowing the world down instead
+     */
+    private static final int MAX_CATCH_UP = 5;
+
+    /**
+     * The World being run, and the input fed into it.
+     * Only ever touched on the simulation thread
+     */
+    private final World world;
+    private final InputState input;
+
+    /**
+     * Where the timings of every step are recorded
+     */
+    private final Metrics metrics;
+
+    /**
+     * Input waiting for the next step
+     * Mouse location and window size are only ever the latest,
+     * packed into one long each so both halves are read together
+     */
+    private final ConcurrentLinkedQueue<InputEvent> events;
+    private volatile long mouse;
+    private volatile long size;
+
+    /**
+     * Snapshot being written, the last one written,
+     * the newest one waiting to be drawn, and the one being drawn
+     */
+    private Snapshot back;
+    private Snapshot last;
+    private final AtomicReference<Snapshot> ready;
+    private Snapshot front;
+
+    /**
+     * Where input is recorded to, or played back from, if anywhere
+     */
+    private InputRecorder recorder;
+    private InputReplay replay;
+
+    /**
+     * Checkpoint files waiting to be saved to or restored from before the next step
+     */
+    private final AtomicReference<String> saveTo;
+    private final AtomicReference<String> restoreFrom;
+
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * Steps taken in the last second
+     */
+    private volatile int stepRate;
+
+    /**
+     * Constructor for a Simulation object
+     * Nothing runs until start()
+     *
+     * @param world_   the World to run
+     * @param metrics_ where to record step timings
+     */
+
+    Simulation(World world_, Metrics metrics_) {
+        world = world_;
+        metrics = metrics_;
+        input = new InputState();
+        events = new ConcurrentLinkedQueue<>();
+        saveTo = new AtomicReference<>();
+        restoreFrom = new AtomicReference<>();
+        mouse = pack(0, 0);
+        size = pack(world.getWidth(), world.getHeight());
+
+        back = new Snapshot();
+        last = new Snapshot();
+        ready = new AtomicReference<>(new Snapshot());
+        front = new Snapshot();
+    }
+
+    /**
+     * Records the input of every step from now on
+     * Only to be called before start()
+     *
+     * @param recorder_ where to record to
+     */
+    void record(InputRecorder recorder_) {
+        recorder = recorder_;
+    }
+
+    /**
+     * Takes the input of every step from a recording instead of the window,
+     * going back to the window once it runs out
+     * Only to be called before start()
+     *
+     * @param replay_ the recording to play back
+     */
+    void replay(InputReplay replay_) {
+        replay = replay_;
+    }
+
+    /**
+     * Starts stepping the World on a new thread
+     */
+    void start() {
+        running = true;
+        thread = new Thread(this, "Simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops stepping the World, and waits for the last step to finish
+     */
+    void stop() {
+        running = false;
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (recorder != null) {
+            try {
+                recorder.close();
+            } catch (IOException e) {
+                System.err.println("Simulation: could not finish recording, " + e.getMessage());
+            }
+            recorder = null;
+        }
+    }
+
+    /**
+     * Steps the World whenever a step is due, until stopped
+     */
+    @Override
+    public void run() {
+        long next = System.nanoTime();
+        long rateStart = next;
+        int rateSteps = 0;
+
+        while (running) {
+            long now = System.nanoTime();
+            if (now < next) {
+                LockSupport.parkNanos(next - now);
+                continue;
+            }
+
+            int steps = 0;
+            while (now >= next && steps < MAX_CATCH_UP) {
+                step();
+                next += STEP_NANOS;
+                steps++;
+            }
+            publish(next - STEP_NANOS);
+
+            //  Still behind, give up on the missed steps
+            if (now >= next) {
+                next = now;
+            }
+
+            rateSteps += steps;
+            if (now - rateStart >= 1000000000L) {
+                stepRate = rateSteps;
+                rateSteps = 0;
+                rateStart = now;
+            }
+        }
+    }
+
+    /**
+     * Plays all waiting input into the World, then steps it once
+     */
+    private void step() {
+        checkpoint();
+
+        if (replay != null) {
+            replayInput();
+        } else {
+            liveInput();
+        }
+
+        long start = System.nanoTime();
+        world.step(input);
+        long end = System.nanoTime();
+
+        metrics.record(Phase.STEP, end - start);
+        metrics.record(Phase.BULLET_UPDATE, world.getBulletUpdateTime());
+        metrics.record(Phase.TRIANGLE_UPDATE, world.getTriangleUpdateTime());
+        metrics.record(Phase.HITS, world.getHitTime());
+    }
+
+    /**
+     * Plays the queued events, mouse location and window size into the World,
+     * recording them if asked to
+     */
+    private void liveInput() {
+        InputEvent event;
+        while ((event = events.poll()) != null) {
+            event.apply(input, world);
+            if (recorder != null) {
+                try {
+                    recorder.event(event);
+                } catch (IOException e) {
+                    stopRecording(e);
+                }
+            }
+        }
+
+        long s = size;
+        long m = mouse;
+        world.setSize(unpackX(s), unpackY(s));
+        input.setMouse(unpackX(m), unpackY(m));
+
+        if (recorder != null) {
+            try {
+                recorder.step(unpackX(m), unpackY(m), unpackX(s), unpackY(s));
+            } catch (IOException e) {
+                stopRecording(e);
+            }
+        }
+    }
+
+    /**
+     * Plays the next step of the recording into the World,
+     * going back to live input once it runs out
+     */
+    private void replayInput() {
+        try {
+            if (replay.next(input, world)) {
+                //  Input from the window while replaying is thrown away
+                events.clear();
+                return;
+            }
+        } catch (IOException e) {
+            System.err.println("Simulation: could not read recording, " + e.getMessage());
+        }
+        replay = null;
+        liveInput();
+    }
+
+    /**
+     * Saves or restores the World if asked to since the last step
+     */
+    private void checkpoint() {
+        String path = saveTo.getAndSet(null);
+        if (path != null) {
+            try {
+                Checkpoint.save(world, path);
+            } catch (IOException e) {
+                System.err.println("Simulation: could not save checkpoint, " + e.getMessage());
+            }
+        }
+
+        path = restoreFrom.getAndSet(null);
+        if (path != null) {
+            try {
+                Checkpoint.restore(world, path);
+            } catch (IOException e) {
+                System.err.println("Simulation: could not restore checkpoint, " + e.getMessage());
+            }
+
+            //  A recording only plays back from the World it started on
+            if (recorder != null) {
+                stopRecording(new IOException("restored a checkpoint"));
+            }
+        }
+    }
+
+    private void stopRecording(IOException e) {
+        System.err.println("Simulation: could not record input, " + e.getMessage());
+        try {
+            recorder.close();
+        } catch (IOException ignored) {
+            //  Already failing
+        }
+        recorder = null;
+    }
+
+    /**
+     * Copies the World into the back Snapshot and swaps it in as the newest
+     *
+     * @param time when the last step was due
+     */
+    private void publish(long time) {
+        back.capture(world, last, time);
+        last = back;
+        back = ready.getAndSet(back);
+    }
+
+    /**
+     * Getter method for the newest Snapshot, only to be called by the thread drawing it
+     * The Snapshot returned stays untouched until the next call
+     *
+     * @return the newest finished Snapshot
+     */
+    Snapshot latest() {
+        if (ready.get().getStep() > front.getStep()) {
+            front = ready.getAndSet(front);
+        }
+        return front;
+    }
+
+    /**
+     * How far the world has moved on from the step before a Snapshot,
+     * to slide drawing between it and its step
+     *
+     * @param snapshot the Snapshot being drawn
+     * @return 0 at the step before, up to 1 at the Snapshot's own step
+     */
+    static float alpha(Snapshot snapshot) {
+        float alpha = (System.nanoTime() - snapshot.getTime()) / (float) STEP_NANOS;
+        return alpha < 0 ? 0 : alpha > 1 ? 1 : alpha;
+    }
+
+    /**
+     * Queues a key being pressed down
+     *
+     * @param k  character of the key
+     * @param kc key code of the key
+     */
+    void keyPressed(char k, int kc) {
+        events.add(InputEvent.keyPressed(k, kc));
+    }
+
+    /**
+     * Asks for the World to be saved before the next step
+     *
+     * @param path file to save to
+     */
+    void save(String path) {
+        saveTo.set(path);
+    }
+
+    /**
+     * Asks for the World to be restored before the next step
+     *
+     * @param path file to restore from
+     */
+    void restore(String path) {
+        restoreFrom.set(path);
+    }
+
+    /**
+     * Queues a key being released
+     *
+     * @param k  character of the key
+     * @param kc key code of the key
+     */
+    void keyReleased(char k, int kc) {
+        events.add(InputEvent.keyReleased(k, kc));
+    }
+
+    /**
+     * Queues a mouse button being pressed down
+     *
+     * @param mb the mouse button
+     * @param x  horizontal location of the mouse
+     * @param y  vertical location of the mouse
+     */
+    void mousePressed(int mb, int x, int y) {
+        events.add(InputEvent.mousePressed(mb, x, y));
+    }
+
+    /**
+     * Queues a mouse button being released
+     *
+     * @param mb the mouse button
+     */
+    void mouseReleased(int mb) {
+        events.add(InputEvent.mouseReleased(mb));
+    }
+
+    void setMouse(int x, int y) {
+        mouse = pack(x, y);
+    }
+
+    void setSize(int width, int height) {
+        size = pack(width, height);
+    }
+
+    /**
+     * Getter method for the step rate
+     *
+     * @return steps taken in the last second
+     */
+    int getStepRate() {
+        return stepRate;
+    }
+
+    private static long pack(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    private static int unpackX(long v) {
+        return (int) (v >> 32);
+    }
+
+    private static int unpackY(long v) {
+        return (int) v;
+    }
+}
@@ -0,0 +1,472 @@
+package me.paul.triangles;
+
+import processing.core.PVector;
+
+import java.util.ArrayList;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Copy of everything needed to draw one step of the World,
+ * so the window can draw while the Simulation is already busy with the next step.
+ * <p>
+ * Every Triangle and Bullet keeps where it was on the step before as well,
+ * so drawing can slide between the two steps and stay smooth
+ * whatever the window's frame rate.
+ * A Triangle's last location is looked up by id in the last Snapshot.
+ * A Bullet's is worked back from its velocity,
+ * which is exact except on the step it bounces off a wall
+ * <p>
+ * Triangles and Bullets are held in Arenas, off the heap when asked for,
+ * so however many there are the three Snapshots add next to nothing to the heap.
+ * Bullets are copied in a whole column at a time
+ * <p>
+ * Snapshots are reused, only ever written by the Simulation thread,
+ * or by a StreamClient receiving them from another window,
+ * while no one else holds them
+ * @version 1.0
+ */
+
+class Snapshot {
+
+    /**
+     * Which step this is, and when that step was due, in System.nanoTime()
+     */
+    private long step;
+    private long time;
+
+    /**
+     * World settings at this step
+     */
+    private int width;
+    private int height;
+    private boolean dynamic;
+    private boolean bounce;
+    private boolean hits;
+    private Gravity gravityMode;
+    private float decay;
+
+    /**
+     * Gravity points
+     */
+    private float[] gravX;
+    private float[] gravY;
+    private int gravCount;
+
+    /**
+     * Columns of the Triangle Arena
+     */
+    private static final int TRIANGLE_ID = 0;
+    private static final int TRIANGLE_X = 1;
+    private static final int TRIANGLE_Y = 2;
+    private static final int TRIANGLE_PREV_X = 3;
+    private static final int TRIANGLE_PREV_Y = 4;
+    private static final int TRIANGLE_VX = 5;
+    private static final int TRIANGLE_VY = 6;
+    private static final int TRIANGLE_COLUMNS = 7;
+
+    /**
+     * Columns of the Bullet Arena
+     */
+    static final int BULLET_X = 0;
+    static final int BULLET_Y = 1;
+    static final int BULLET_VX = 2;
+    static final int BULLET_VY = 3;
+    private static final int BULLET_COLUMNS = 4;
+
+    /**
+     * Triangle data, one slot per Triangle, oldest first
+     */
+    private final Arena triangles;
+    private int triangleCount;
+
+    /**
+     * Bullet data, one slot per Bullet
+     */
+    private final Arena bullets;
+    private int bulletCount;
+
+    /**
+     * Timings of the step, in nanoseconds, and the Bullet workers that took them
+     */
+    private long bulletUpdateTime;
+    private long triangleUpdateTime;
+    private int workers;
+
+    /**
+     * Tiles the Bullets were updated by, if any: columns and rows,
+     * then the Bullets in every tile and the nanoseconds it took, and Bullets that changed tile
+     */
+    private int tileColumns;
+    private int tileRows;
+    private int[] tileBullets;
+    private long[] tileTimes;
+    private int migrated;
+
+    /**
+     * Constructor for an empty Snapshot object
+     */
+
+    Snapshot() {
+        this(Arena.DEFAULT_OFF_HEAP);
+    }
+
+    /**
+     * Constructor for an empty Snapshot object
+     *
+     * @param offHeap whether to hold Triangles and Bullets off the heap
+     */
+
+    Snapshot(boolean offHeap) {
+        step = -1;
+        gravityMode = Gravity.OFF;
+        gravX = new float[0];
+        gravY = new float[0];
+        tileBullets = new int[0];
+        tileTimes = new long[0];
+        triangles = new Arena(TRIANGLE_COLUMNS, offHeap);
+        bullets = new Arena(BULLET_COLUMNS, offHeap);
+    }
+
+    /**
+     * Copies the World into this Snapshot
+     *
+     * @param world the World to copy
+     * @param last  Snapshot of the step before, for where Triangles were
+     * @param time_ when this step was due, in System.nanoTime()
+     */
+    void capture(World world, Snapshot last, long time_) {
+        step = world.getFrameCount();
+        time = time_;
+
+        width = world.getWidth();
+        height = world.getHeight();
+        dynamic = world.getDynamicMode();
+        bounce = world.getBounceMode();
+        hits = world.getHitMode();
+        gravityMode = world.getGravityMode();
+        decay = world.getDecay();
+
+        captureGravity(world.getGravityList());
+        captureTriangles(world.getTriangles(), last);
+        captureBullets(world.getBullets());
+
+        bulletUpdateTime = world.getBulletUpdateTime();
+        triangleUpdateTime = world.getTriangleUpdateTime();
+        workers = world.getBullets().getWorkers();
+        captureTiles(world.getBullets().getTiles());
+    }
+
+    private void captureTiles(TileGrid tiles) {
+        if (tiles == null) {
+            tileColumns = 0;
+            tileRows = 0;
+            return;
+        }
+        tileColumns = tiles.getColumns();
+        tileRows = tiles.getRows();
+        int n = tiles.getCount();
+        if (tileBullets.length < n) {
+            tileBullets = new int[n];
+            tileTimes = new long[n];
+        }
+        for (int t = 0; t < n; t++) {
+            tileBullets[t] = tiles.getBullets(t);
+            tileTimes[t] = tiles.getTime(t);
+        }
+        migrated = tiles.getMigrated();
+    }
+
+    private void captureGravity(ArrayList<PVector> gravList) {
+        gravCount = gravList.size();
+        if (gravX.length < gravCount) {
+            gravX = new float[gravCount * 2];
+            gravY = new float[gravCount * 2];
+        }
+        for (int i = 0; i < gravCount; i++) {
+            gravX[i] = gravList.get(i).x;
+            gravY[i] = gravList.get(i).y;
+        }
+    }
+
+    private void captureTriangles(TriangleRing ring, Snapshot last) {
+        triangleCount = ring.size();
+        triangles.reserve(triangleCount);
+
+        //  Both lists are oldest first and ids only ever go up,
+        //  so the last location of every Triangle is found in one walk
+        Arena before = last.triangles;
+        int k = 0;
+        for (int i = 0; i < triangleCount; i++) {
+            Triangle t = ring.get(i);
+            PVector pos = t.getPos();
+            PVector velocity = t.getVelocity();
+            int id = t.getId();
+
+            triangles.putInt(TRIANGLE_ID, i, id);
+            triangles.putFloat(TRIANGLE_X, i, pos.x);
+            triangles.putFloat(TRIANGLE_Y, i, pos.y);
+            triangles.putFloat(TRIANGLE_VX, i, velocity.x);
+            triangles.putFloat(TRIANGLE_VY, i, velocity.y);
+
+            while (k < last.triangleCount && before.getInt(TRIANGLE_ID, k) < id) {
+                k++;
+            }
+            if (k < last.triangleCount && before.getInt(TRIANGLE_ID, k) == id) {
+                triangles.putFloat(TRIANGLE_PREV_X, i, before.getFloat(TRIANGLE_X, k));
+                triangles.putFloat(TRIANGLE_PREV_Y, i, before.getFloat(TRIANGLE_Y, k));
+            } else {
+                //  New this step
+                triangles.putFloat(TRIANGLE_PREV_X, i, pos.x);
+                triangles.putFloat(TRIANGLE_PREV_Y, i, pos.y);
+            }
+        }
+    }
+
+    private void captureBullets(BulletStore store) {
+        bullets.reserve(store.size());
+        bulletCount = store.copyTo(bullets);
+    }
+
+    /**
+     * Fills in the settings of a Snapshot received from a StreamServer,
+     * to be followed by its gravity points, Triangles and Bullets
+     *
+     * @param step_        which step this is
+     * @param time_        when this step arrived, in System.nanoTime()
+     * @param width_       width of the World
+     * @param height_      height of the World
+     * @param dynamic_     whether dynamic mode is on
+     * @param bounce_      whether bounce mode is on
+     * @param hits_        whether hit mode is on
+     * @param gravityMode_ gravity mode
+     * @param decay_       decay
+     * @param workers_     Bullet workers of the World
+     */
+    void receive(long step_, long time_, int width_, int height_, boolean dynamic_, boolean bounce_,
+                 boolean hits_, Gravity gravityMode_, float decay_, int workers_) {
+        step = step_;
+        time = time_;
+        width = width_;
+        height = height_;
+        dynamic = dynamic_;
+        bounce = bounce_;
+        hits = hits_;
+        gravityMode = gravityMode_;
+        decay = decay_;
+        workers = workers_;
+        bulletUpdateTime = 0;
+        triangleUpdateTime = 0;
+        tileColumns = 0;
+        tileRows = 0;
+    }
+
+    void receiveGravity(int count) {
+        gravCount = count;
+        if (gravX.length < gravCount) {
+            gravX = new float[gravCount * 2];
+            gravY = new float[gravCount * 2];
+        }
+    }
+
+    void putGravity(int i, float x, float y) {
+        gravX[i] = x;
+        gravY[i] = y;
+    }
+
+    void receiveTriangles(int count) {
+        triangleCount = count;
+        triangles.reserve(count);
+    }
+
+    void putTriangle(int i, int id, float x, float y, float prevX, float prevY, float vx, float vy) {
+        triangles.putInt(TRIANGLE_ID, i, id);
+        triangles.putFloat(TRIANGLE_X, i, x);
+        triangles.putFloat(TRIANGLE_Y, i, y);
+        triangles.putFloat(TRIANGLE_PREV_X, i, prevX);
+        triangles.putFloat(TRIANGLE_PREV_Y, i, prevY);
+        triangles.putFloat(TRIANGLE_VX, i, vx);
+        triangles.putFloat(TRIANGLE_VY, i, vy);
+    }
+
+    void receiveBullets(int count) {
+        bulletCount = count;
+        bullets.reserve(count);
+    }
+
+    void putBullet(int i, float x, float y, float vx, float vy) {
+        bullets.putFloat(BULLET_X, i, x);
+        bullets.putFloat(BULLET_Y, i, y);
+        bullets.putFloat(BULLET_VX, i, vx);
+        bullets.putFloat(BULLET_VY, i, vy);
+    }
+
+    long getStep() {
+        return step;
+    }
+
+    long getTime() {
+        return time;
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    boolean getDynamicMode() {
+        return dynamic;
+    }
+
+    boolean getBounceMode() {
+        return bounce;
+    }
+
+    boolean getHitMode() {
+        return hits;
+    }
+
+    Gravity getGravityMode() {
+        return gravityMode;
+    }
+
+    float getDecay() {
+        return decay;
+    }
+
+    int getGravityCount() {
+        return gravCount;
+    }
+
+    float getGravityX(int i) {
+        return gravX[i];
+    }
+
+    float getGravityY(int i) {
+        return gravY[i];
+    }
+
+    int getTriangleCount() {
+        return triangleCount;
+    }
+
+    int getTriangleId(int i) {
+        return triangles.getInt(TRIANGLE_ID, i);
+    }
+
+    /**
+     * Getter method for the horizontal location of a Triangle,
+     * part way between the last step and this one
+     *
+     * @param i     slot of the Triangle
+     * @param alpha how far between the steps, from 0 (last step) to 1 (this step)
+     * @return horizontal location of the Triangle
+     */
+    float getTriangleX(int i, float alpha) {
+        float prev = triangles.getFloat(TRIANGLE_PREV_X, i);
+        return prev + (triangles.getFloat(TRIANGLE_X, i) - prev) * alpha;
+    }
+
+    /**
+     * Getter method for the vertical location of a Triangle,
+     * part way between the last step and this one
+     *
+     * @param i     slot of the Triangle
+     * @param alpha how far between the steps, from 0 (last step) to 1 (this step)
+     * @return vertical location of the Triangle
+     */
+    float getTriangleY(int i, float alpha) {
+        float prev = triangles.getFloat(TRIANGLE_PREV_Y, i);
+        return prev + (triangles.getFloat(TRIANGLE_Y, i) - prev) * alpha;
+    }
+
+    float getTriangleVelocityX(int i) {
+        return triangles.getFloat(TRIANGLE_VX, i);
+    }
+
+    float getTriangleVelocityY(int i) {
+        return triangles.getFloat(TRIANGLE_VY, i);
+    }
+
+    int getBulletCount() {
+        return bulletCount;
+    }
+
+    /**
+     * Getter method for the horizontal location of a Bullet,
+     * part way between the last step and this one
+     *
+     * @param i     slot of the Bullet
+     * @param alpha how far between the steps, from 0 (last step) to 1 (this step)
+     * @return horizontal location of the Bullet
+     */
+    float getBulletX(int i, float alpha) {
+        //  Last location is the location less one step of velocity
+        return bullets.getFloat(BULLET_X, i) - bullets.getFloat(BULLET_VX, i) * (1 - alpha);
+    }
+
+    /**
+     * Getter method for the vertical location of a Bullet,
+     * part way between the last step and this one
+     *
+     * @param i     slot of the Bullet
+     * @param alpha how far between the steps, from 0 (last step) to 1 (this step)
+     * @return vertical location of the Bullet
+     */
+    float getBulletY(int i, float alpha) {
+        return bullets.getFloat(BULLET_Y, i) - bullets.getFloat(BULLET_VY, i) * (1 - alpha);
+    }
+
+    float getBulletVelocityX(int i) {
+        return bullets.getFloat(BULLET_VX, i);
+    }
+
+    float getBulletVelocityY(int i) {
+        return bullets.getFloat(BULLET_VY, i);
+    }
+
+    long getBulletUpdateTime() {
+        return bulletUpdateTime;
+    }
+
+    long getTriangleUpdateTime() {
+        return triangleUpdateTime;
+    }
+
+    int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * @return tiles across, 0 if Bullets were not updated by tile
+     */
+    int getTileColumns() {
+        return tileColumns;
+    }
+
+    int getTileRows() {
+        return tileRows;
+    }
+
+    int getTileBullets(int tile) {
+        return tileBullets[tile];
+    }
+
+    long getTileTime(int tile) {
+        return tileTimes[tile];
+    }
+
+    int getMigrated() {
+        return migrated;
+    }
+
+    /**
+     * @return size of the Triangle and Bullet Arenas, in bytes
+     */
+    long getArenaBytes() {
+        return triangles.getBytes() + bullets.getBytes();
+    }
+}
@@ -0,0 +1,401 @@
+package me.paul.triangles;
+
+import processing.core.PVector;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Uniform grid of Triangles, hashed into a fixed table of buckets,
+ * used to find which Triangles a Bullet could be touching
+ * without checking every Triangle.
+ * <p>
+ * A Triangle sits in the cell holding its centre.
+ * Cells are wide enough that a Bullet touching a Triangle
+ * is always in that Triangle's cell or one of the eight around it.
+ * <p>
+ * Every Triangle takes a slot, holding its cell and its links through its bucket,
+ * and only moves bucket when it crosses into another cell,
+ * so keeping the grid up to date costs next to nothing each frame.
+ * The slots are kept in flat arrays rather than on the Triangles,
+ * so walking a bucket reads a few packed ints
+ * instead of Triangles spread over the heap, which miss the cache once there are thousands.
+ * For the same reason every slot also holds a copy of its Triangle's id, location and heading,
+ * refreshed by update(), which is all touches() needs to tell whether a Bullet hits it
+ * @version 1.0
+ */
+
+class SpatialHash {
+
+    /**
+     * Reach of a Bullet touching a Triangle from its centre, about 56.9
+     */
+    private static final float REACH = Triangle.RADIUS + BulletStore.RADIUS;
+
+    /**
+     * Width of a cell, the smallest power of two at least REACH, 64.
+     * A power of two keeps INV_CELL exact, so no point is rounded into the wrong cell
+     */
+    static final float CELL = Integer.highestOneBit((int) Math.ceil(REACH) - 1) << 1;
+    private static final float INV_CELL = 1 / CELL;
+
+    private static final int MIN_BUCKETS = 64;
+
+    /**
+     * Most buckets a checkpoint may ask for
+     */
+    static final int MAX_BUCKETS = 1 << 24;
+
+    /**
+     * Ints every slot takes in slots: its cell, the next slot in its bucket, and its Triangle's id
+     */
+    private static final int SLOT_INTS = 4;
+    private static final int CELL_X = 0;
+    private static final int CELL_Y = 1;
+    private static final int NEXT = 2;
+    private static final int ID = 3;
+
+    /**
+     * Floats every slot takes in shapes: its Triangle's location, and its heading as a unit vector
+     */
+    private static final int SHAPE_FLOATS = 4;
+    private static final int X = 0;
+    private static final int Y = 1;
+    private static final int UP_X = 2;
+    private static final int UP_Y = 3;
+
+    private static final int NONE = -1;
+
+    /**
+     * First slot of every bucket
+     */
+    private int[] buckets;
+    private int mask;
+    private int size;
+
+    /**
+     * Cell, next slot and id of every slot, walked for every query, and the shape of every slot,
+     * then the Triangle, previous slot and bucket of every slot
+     */
+    private int[] slots;
+    private float[] shapes;
+    private Triangle[] items;
+    private int[] prev;
+    private int[] bucketOf;
+
+    /**
+     * Slots given back by removed Triangles, and the first slot never used
+     */
+    private int[] free;
+    private int freeCount;
+    private int used;
+
+    /**
+     * Buckets of the cells around a query, to skip repeats
+     */
+    private final int[] near;
+
+    /**
+     * Constructor for a SpatialHash object
+     */
+
+    SpatialHash() {
+        buckets = new int[MIN_BUCKETS];
+        Arrays.fill(buckets, NONE);
+        mask = MIN_BUCKETS - 1;
+        size = 0;
+        slots = new int[MIN_BUCKETS * SLOT_INTS];
+        shapes = new float[MIN_BUCKETS * SHAPE_FLOATS];
+        items = new Triangle[MIN_BUCKETS];
+        prev = new int[MIN_BUCKETS];
+        bucketOf = new int[MIN_BUCKETS];
+        free = new int[MIN_BUCKETS];
+        near = new int[9];
+    }
+
+    /**
+     * Adds a Triangle to the grid
+     *
+     * @param t the Triangle to add
+     */
+    void insert(Triangle t) {
+        if (size + 1 > buckets.length / 2) {
+            resize(buckets.length * 2);
+        }
+        int slot = takeSlot();
+        items[slot] = t;
+        t.hashSlot = slot;
+        slots[slot * SLOT_INTS + ID] = t.getId();
+        shape(slot, t);
+        link(slot, cellOf(t.getPos().x), cellOf(t.getPos().y));
+        size++;
+    }
+
+    /**
+     * Copies where a Triangle now is and points,
+     * and moves it to its new cell if it has left its old one
+     *
+     * @param t the Triangle to update
+     */
+    void update(Triangle t) {
+        int slot = t.hashSlot;
+        shape(slot, t);
+        int cx = cellOf(t.getPos().x);
+        int cy = cellOf(t.getPos().y);
+        int at = slot * SLOT_INTS;
+        if (cx != slots[at + CELL_X] || cy != slots[at + CELL_Y]) {
+            unlink(slot);
+            link(slot, cx, cy);
+        }
+    }
+
+    /**
+     * Takes a Triangle out of the grid
+     *
+     * @param t the Triangle to remove
+     */
+    void remove(Triangle t) {
+        int slot = t.hashSlot;
+        if (slot >= 0) {
+            unlink(slot);
+            items[slot] = null;
+            free[freeCount++] = slot;
+            t.hashSlot = NONE;
+            size--;
+        }
+    }
+
+    /**
+     * Empties the grid
+     */
+    void clear() {
+        for (int slot = 0; slot < used; slot++) {
+            if (items[slot] != null) {
+                items[slot].hashSlot = NONE;
+                items[slot] = null;
+            }
+        }
+        Arrays.fill(buckets, NONE);
+        freeCount = 0;
+        used = 0;
+        size = 0;
+    }
+
+    /**
+     * Finds the slots of every Triangle in the cell of a point, or the eight cells around it.
+     * The slots found only depend on the point's cell
+     *
+     * @param x   horizontal location of the point
+     * @param y   vertical location of the point
+     * @param out filled with the slots found, must fit them
+     * @return amount of slots found
+     */
+    int candidates(float x, float y, int[] out) {
+        int cx = cellOf(x);
+        int cy = cellOf(y);
+        int found = 0;
+        int visited = 0;
+
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                int b = bucket(cx + dx, cy + dy);
+
+                //  Neighbouring cells can share a bucket, only walk it once
+                boolean seen = false;
+                for (int k = 0; k < visited; k++) {
+                    if (near[k] == b) {
+                        seen = true;
+                        break;
+                    }
+                }
+                if (seen) {
+                    continue;
+                }
+                near[visited++] = b;
+
+                //  Buckets also hold far away cells, keep only the neighbours
+                for (int slot = buckets[b]; slot != NONE; slot = slots[slot * SLOT_INTS + NEXT]) {
+                    int at = slot * SLOT_INTS;
+                    if (Math.abs(slots[at + CELL_X] - cx) <= 1 && Math.abs(slots[at + CELL_Y] - cy) <= 1) {
+                        out[found++] = slot;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return the Triangle in a slot
+     */
+    Triangle get(int slot) {
+        return items[slot];
+    }
+
+    /**
+     * @return id of the Triangle in a slot
+     */
+    int getId(int slot) {
+        return slots[slot * SLOT_INTS + ID];
+    }
+
+    /**
+     * Checks if a circle, such as a Bullet, overlaps the Triangle in a slot, as it was at its last update
+     *
+     * @param slot   slot of the Triangle
+     * @param cx     horizontal location of the circle's centre
+     * @param cy     vertical location of the circle's centre
+     * @param radius radius of the circle
+     * @return true if they overlap
+     */
+    boolean touches(int slot, float cx, float cy, float radius) {
+        int at = slot * SHAPE_FLOATS;
+        return Triangle.overlaps(shapes[at + X], shapes[at + Y], shapes[at + UP_X], shapes[at + UP_Y], cx, cy, radius);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Getter method for the size of this grid in a checkpoint
+     *
+     * @return size, in bytes
+     */
+    int getCheckpointBytes() {
+        return 8 + size * 4;
+    }
+
+    /**
+     * Writes the table size and the ids of every Triangle to a checkpoint,
+     * every bucket from its last Triangle to its first.
+     * Inserting them again in that order rebuilds every bucket as it was,
+     * so hits are found in the same order after a restore
+     *
+     * @param out where to write, with room for getCheckpointBytes()
+     */
+    void write(ByteBuffer out) {
+        out.putInt(buckets.length);
+        out.putInt(size);
+        for (int head : buckets) {
+            int slot = head;
+            while (slot != NONE && slots[slot * SLOT_INTS + NEXT] != NONE) {
+                slot = slots[slot * SLOT_INTS + NEXT];
+            }
+            for (; slot != NONE; slot = prev[slot]) {
+                out.putInt(items[slot].getId());
+            }
+        }
+    }
+
+    /**
+     * Empties the grid and sets its amount of buckets
+     *
+     * @param capacity amount of buckets, a power of two
+     */
+    void reset(int capacity) {
+        clear();
+        buckets = new int[Math.max(capacity, MIN_BUCKETS)];
+        Arrays.fill(buckets, NONE);
+        mask = buckets.length - 1;
+    }
+
+    /**
+     * @return the cell, across or down, holding a coordinate
+     */
+    static int cellOf(float v) {
+        float c = v * INV_CELL;
+        int i = (int) c;
+        return c < i ? i - 1 : i;
+    }
+
+    private int bucket(int cx, int cy) {
+        return ((cx * 73856093) ^ (cy * 19349663)) & mask;
+    }
+
+    /**
+     * Hands out a free slot, growing the slot arrays if every one is taken
+     *
+     * @return the slot
+     */
+    private int takeSlot() {
+        if (freeCount > 0) {
+            return free[--freeCount];
+        }
+        if (used == items.length) {
+            int capacity = items.length * 2;
+            slots = Arrays.copyOf(slots, capacity * SLOT_INTS);
+            shapes = Arrays.copyOf(shapes, capacity * SHAPE_FLOATS);
+            items = Arrays.copyOf(items, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+            bucketOf = Arrays.copyOf(bucketOf, capacity);
+            free = Arrays.copyOf(free, capacity);
+        }
+        return used++;
+    }
+
+    /**
+     * Copies where a Triangle is and points into its slot, the heading worked out as Triangle.overlaps() does
+     */
+    private void shape(int slot, Triangle t) {
+        PVector pos = t.getPos();
+        PVector velocity = t.getVelocity();
+        float speed = velocity.mag();
+        int at = slot * SHAPE_FLOATS;
+        shapes[at + X] = pos.x;
+        shapes[at + Y] = pos.y;
+        shapes[at + UP_X] = velocity.x / speed;
+        shapes[at + UP_Y] = velocity.y / speed;
+    }
+
+    private void link(int slot, int cx, int cy) {
+        int b = bucket(cx, cy);
+        int at = slot * SLOT_INTS;
+        int head = buckets[b];
+        slots[at + CELL_X] = cx;
+        slots[at + CELL_Y] = cy;
+        slots[at + NEXT] = head;
+        prev[slot] = NONE;
+        bucketOf[slot] = b;
+        if (head != NONE) {
+            prev[head] = slot;
+        }
+        buckets[b] = slot;
+    }
+
+    private void unlink(int slot) {
+        int next = slots[slot * SLOT_INTS + NEXT];
+        if (prev[slot] != NONE) {
+            slots[prev[slot] * SLOT_INTS + NEXT] = next;
+        } else {
+            buckets[bucketOf[slot]] = next;
+        }
+        if (next != NONE) {
+            prev[next] = prev[slot];
+        }
+    }
+
+    /**
+     * Grows the table, moving every Triangle into its new bucket
+     *
+     * @param capacity new amount of buckets, a power of two
+     */
+    private void resize(int capacity) {
+        int[] old = buckets;
+        buckets = new int[capacity];
+        Arrays.fill(buckets, NONE);
+        mask = capacity - 1;
+
+        for (int head : old) {
+            int slot = head;
+            while (slot != NONE) {
+                int at = slot * SLOT_INTS;
+                int next = slots[at + NEXT];
+                link(slot, slots[at + CELL_X], slots[at + CELL_Y]);
+                slot = next;
+            }
+        }
+    }
+}
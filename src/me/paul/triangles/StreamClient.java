@@ -0,0 +1,237 @@
+package me.paul.triangles;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Receives the Snapshots a StreamServer sends, on its own thread,
+ * for a window that only draws them.
+ * Snapshots are handed over just as a Simulation hands over its own, three taking turns.
+ * If the server goes away the client keeps trying to connect, once a second.
+ * <p>
+ * Can also be run on its own, to watch a stream without drawing it.
+ * Prints what arrived every second.
+ * <p>
+ * Usage: StreamClient address [seconds]
+ * @version 1.0
+ */
+
+class StreamClient implements Runnable {
+
+    /**
+     * Address of the StreamServer to show, host:port, or just a port on this machine
+     * Set with -Dtriangles.view=address, off by default
+     */
+    static final String DEFAULT_ADDRESS = System.getProperty("triangles.view");
+
+    private static final long RETRY_MILLIS = 1000;
+
+    /**
+     * Longest frame accepted, room for over three million Bullets in a key frame.
+     * A longer length is taken to be a broken or hostile stream, not a frame worth allocating for
+     */
+    private static final int MAX_FRAME_BYTES = 64 << 20;
+
+    private final InetSocketAddress address;
+    private final Thread reader;
+    private volatile boolean running;
+    private volatile SocketChannel channel;
+
+    /**
+     * Snapshot being read, the newest read, and the one being drawn
+     */
+    private Snapshot back;
+    private final AtomicReference<Snapshot> ready;
+    private Snapshot front;
+
+    /**
+     * Frames and bytes received, key frames among them, and frames in the last second
+     */
+    private volatile long frames;
+    private volatile long bytes;
+    private volatile long keyFrames;
+    private volatile int frameRate;
+
+    /**
+     * Constructor for a StreamClient object, not yet connected
+     *
+     * @param address_ address of the StreamServer, host:port or just a port
+     */
+
+    StreamClient(String address_) {
+        address = StreamCodec.parseAddress(address_);
+        reader = new Thread(this, "StreamClient");
+        reader.setDaemon(true);
+
+        back = new Snapshot();
+        ready = new AtomicReference<>(new Snapshot());
+        front = new Snapshot();
+    }
+
+    void start() {
+        running = true;
+        reader.start();
+    }
+
+    void stop() {
+        running = false;
+        reader.interrupt();
+        SocketChannel open = channel;
+        if (open != null) {
+            try {
+                open.close();
+            } catch (IOException ignored) {
+                //  Closing anyway
+            }
+        }
+    }
+
+    /**
+     * Connects, and reads frames until stopped, on its own thread
+     */
+    @Override
+    public void run() {
+        while (running) {
+            try (SocketChannel open = SocketChannel.open(address)) {
+                channel = open;
+                receive(open);
+            } catch (IOException | RuntimeException e) {
+                if (running) {
+                    System.err.println("StreamClient: lost " + address + ", " + e.getMessage());
+                }
+            }
+            channel = null;
+
+            try {
+                Thread.sleep(RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void receive(SocketChannel open) throws IOException {
+        ByteBuffer in = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        read(open, in, 8);
+        if (in.getInt() != StreamCodec.MAGIC) {
+            throw new IOException(address + " is not a StreamServer");
+        }
+        int version = in.getInt();
+        if (version != StreamCodec.VERSION) {
+            throw new IOException(address + " streams version " + version + ", only " + StreamCodec.VERSION + " is supported");
+        }
+
+        //  Every connection starts from a key frame
+        StreamCodec codec = new StreamCodec();
+        long second = System.nanoTime();
+        int framesThisSecond = 0;
+        while (running) {
+            read(open, in, 4);
+            int length = in.getInt();
+            if (length <= 0 || length > MAX_FRAME_BYTES) {
+                throw new IOException(address + " sent a frame of " + length + " bytes");
+            }
+            if (in.capacity() < length) {
+                in = ByteBuffer.allocate(length * 2).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            read(open, in, length);
+
+            long now = System.nanoTime();
+            if (in.get(0) == StreamCodec.KEY) {
+                keyFrames++;
+            }
+            codec.decode(in, back, now);
+            back = ready.getAndSet(back);
+
+            frames++;
+            bytes += 4 + length;
+            framesThisSecond++;
+            if (now - second >= 1_000_000_000L) {
+                frameRate = framesThisSecond;
+                framesThisSecond = 0;
+                second = now;
+            }
+        }
+    }
+
+    /**
+     * Reads an exact amount of bytes into the start of a buffer, ready to get
+     */
+    private static void read(SocketChannel open, ByteBuffer in, int n) throws IOException {
+        in.clear();
+        in.limit(n);
+        while (in.hasRemaining()) {
+            if (open.read(in) < 0) {
+                throw new EOFException("stream ended");
+            }
+        }
+        in.flip();
+    }
+
+    /**
+     * Getter method for the newest Snapshot, only to be called by the thread drawing it
+     * The Snapshot returned stays untouched until the next call
+     *
+     * @return the newest Snapshot received
+     */
+    Snapshot latest() {
+        //  By arrival, as a restarted server starts its steps over
+        if (ready.get().getTime() > front.getTime()) {
+            front = ready.getAndSet(front);
+        }
+        return front;
+    }
+
+    boolean isConnected() {
+        return channel != null;
+    }
+
+    long getFrames() {
+        return frames;
+    }
+
+    long getBytes() {
+        return bytes;
+    }
+
+    long getKeyFrames() {
+        return keyFrames;
+    }
+
+    /**
+     * @return frames received in the last second
+     */
+    int getFrameRate() {
+        return frameRate;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Usage: StreamClient address [seconds]");
+            System.exit(2);
+        }
+
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : Integer.MAX_VALUE;
+        StreamClient client = new StreamClient(args[0]);
+        client.start();
+
+        long lastBytes = 0;
+        for (int s = 0; s < seconds; s++) {
+            Thread.sleep(1000);
+            Snapshot snapshot = client.latest();
+            long total = client.getBytes();
+            System.out.printf("step %d: %d frames/s, %.1f KB/s, %d key frames, %d Triangles, %d Bullets%n",
+                    snapshot.getStep(), client.getFrameRate(), (total - lastBytes) / 1024.0,
+                    client.getKeyFrames(), snapshot.getTriangleCount(), snapshot.getBulletCount());
+            lastBytes = total;
+        }
+        client.stop();
+    }
+}
@@ -0,0 +1,484 @@
+package me.paul.triangles;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Turns Snapshots into compact frames for a StreamServer to send, and back again for a StreamClient.
+ * <p>
+ * Locations are rounded to 1/8 of a pixel and velocities to 1/64,
+ * and every number is written as a variable length int of 1 to 5 bytes, small numbers taking fewer.
+ * A Triangle is written as the change since the frame before, found by id,
+ * so one that barely moves takes a few bytes.
+ * A Bullet is written as the change from the Bullet before it in the same frame,
+ * as Bullets fired together sit close and fly alike.
+ * Gravity points are only written when they change.
+ * <p>
+ * A key frame writes every Triangle whole instead,
+ * so a viewer that has missed frames, or has just joined, can start from it.
+ * <p>
+ * Both ends keep the last frame, rounded just as it was sent,
+ * so they always agree on what a change is from
+ * @version 1.0
+ */
+
+class StreamCodec {
+
+    /**
+     * Start of every stream, and its format version
+     */
+    static final int MAGIC = 0x54525353;
+    static final int VERSION = 1;
+
+    /**
+     * Kinds of frame
+     */
+    static final byte KEY = 1;
+    static final byte DELTA = 2;
+
+    /**
+     * Steps of a rounded location and velocity, per pixel
+     */
+    static final float POSITION_SCALE = 8;
+    static final float VELOCITY_SCALE = 64;
+
+    private static final int FLAG_DYNAMIC = 1;
+    private static final int FLAG_BOUNCE = 2;
+    private static final int FLAG_HITS = 4;
+    static final int FLAG_GRAVITY = 8;
+
+    private static final Gravity[] GRAVITY_MODES = Gravity.values();
+
+    /**
+     * Fewest bytes a gravity point, Triangle and Bullet take in a frame, one byte per number
+     */
+    private static final int GRAVITY_BYTES = 2;
+    private static final int TRIANGLE_BYTES = 5;
+    private static final int BULLET_BYTES = 4;
+
+    /**
+     * Triangles of the last frame, rounded, oldest first
+     */
+    private int[] ids;
+    private int[] x;
+    private int[] y;
+    private int[] vx;
+    private int[] vy;
+    private int count;
+
+    /**
+     * Triangles of the frame being written or read, swapped with the last frame when done
+     */
+    private int[] nextIds;
+    private int[] nextX;
+    private int[] nextY;
+    private int[] nextVx;
+    private int[] nextVy;
+
+    /**
+     * Gravity points of the last frame, rounded
+     */
+    private int[] gravX;
+    private int[] gravY;
+    private int gravCount;
+
+    /**
+     * Constructor for a StreamCodec object with no last frame
+     */
+
+    StreamCodec() {
+        ids = new int[0];
+        x = new int[0];
+        y = new int[0];
+        vx = new int[0];
+        vy = new int[0];
+        nextIds = new int[0];
+        nextX = new int[0];
+        nextY = new int[0];
+        nextVx = new int[0];
+        nextVy = new int[0];
+        count = 0;
+        gravX = new int[0];
+        gravY = new int[0];
+        gravCount = 0;
+    }
+
+    /**
+     * Most bytes a frame of a Snapshot can take
+     *
+     * @param snapshot the Snapshot
+     * @return bytes
+     */
+    static int maxBytes(Snapshot snapshot) {
+        return 64 + snapshot.getGravityCount() * 10 + snapshot.getTriangleCount() * 25 + snapshot.getBulletCount() * 20;
+    }
+
+    /**
+     * Writes a Snapshot as a delta frame, and as a key frame if asked,
+     * then makes it the last frame
+     *
+     * @param snapshot the Snapshot to write
+     * @param delta    where to write the delta frame, a heap buffer with maxBytes() free
+     * @param key      where to write the key frame, with maxBytes() free, or null for none
+     */
+    void encode(Snapshot snapshot, ByteBuffer delta, ByteBuffer key) {
+        //  Settings
+        int flags = (snapshot.getDynamicMode() ? FLAG_DYNAMIC : 0)
+                | (snapshot.getBounceMode() ? FLAG_BOUNCE : 0)
+                | (snapshot.getHitMode() ? FLAG_HITS : 0);
+        boolean gravityChanged = roundGravity(snapshot);
+        writeHeader(delta, DELTA, snapshot, gravityChanged ? flags | FLAG_GRAVITY : flags);
+        if (key != null) {
+            writeHeader(key, KEY, snapshot, flags | FLAG_GRAVITY);
+        }
+        if (gravityChanged) {
+            writeGravity(delta);
+        }
+        if (key != null) {
+            writeGravity(key);
+        }
+
+        //  Triangles, as changes from the last frame
+        int triangleCount = snapshot.getTriangleCount();
+        reserve(triangleCount);
+        putVarint(delta, triangleCount);
+        if (key != null) {
+            putVarint(key, triangleCount);
+        }
+        int lastId = -1;
+        int k = 0;
+        for (int i = 0; i < triangleCount; i++) {
+            int id = snapshot.getTriangleId(i);
+            int tx = round(snapshot.getTriangleX(i, 1), POSITION_SCALE);
+            int ty = round(snapshot.getTriangleY(i, 1), POSITION_SCALE);
+            int tvx = round(snapshot.getTriangleVelocityX(i), VELOCITY_SCALE);
+            int tvy = round(snapshot.getTriangleVelocityY(i), VELOCITY_SCALE);
+            nextIds[i] = id;
+            nextX[i] = tx;
+            nextY[i] = ty;
+            nextVx[i] = tvx;
+            nextVy[i] = tvy;
+
+            //  Both frames are oldest first and ids only ever go up
+            while (k < count && ids[k] < id) {
+                k++;
+            }
+            putVarint(delta, id - lastId);
+            if (k < count && ids[k] == id) {
+                putSigned(delta, tx - x[k]);
+                putSigned(delta, ty - y[k]);
+                putSigned(delta, tvx - vx[k]);
+                putSigned(delta, tvy - vy[k]);
+            } else {
+                putTriangle(delta, tx, ty, tvx, tvy);
+            }
+            if (key != null) {
+                putVarint(key, id - lastId);
+                putTriangle(key, tx, ty, tvx, tvy);
+            }
+            lastId = id;
+        }
+        count = triangleCount;
+        swap();
+
+        //  Bullets, as changes from the Bullet before, the same in both frames
+        int bulletCount = snapshot.getBulletCount();
+        int start = delta.position();
+        putVarint(delta, bulletCount);
+        int bx = 0;
+        int by = 0;
+        int bvx = 0;
+        int bvy = 0;
+        for (int i = 0; i < bulletCount; i++) {
+            int nx = round(snapshot.getBulletX(i, 1), POSITION_SCALE);
+            int ny = round(snapshot.getBulletY(i, 1), POSITION_SCALE);
+            int nvx = round(snapshot.getBulletVelocityX(i), VELOCITY_SCALE);
+            int nvy = round(snapshot.getBulletVelocityY(i), VELOCITY_SCALE);
+            putSigned(delta, nx - bx);
+            putSigned(delta, ny - by);
+            putSigned(delta, nvx - bvx);
+            putSigned(delta, nvy - bvy);
+            bx = nx;
+            by = ny;
+            bvx = nvx;
+            bvy = nvy;
+        }
+        if (key != null) {
+            //  Copied through the array, as a view of delta would be a new object every key frame
+            key.put(delta.array(), delta.arrayOffset() + start, delta.position() - start);
+        }
+    }
+
+    /**
+     * Reads a frame into a Snapshot, then makes it the last frame
+     * A delta frame must follow the frame it was written after
+     *
+     * @param in       the frame
+     * @param snapshot the Snapshot to fill
+     * @param time     when the frame arrived, in System.nanoTime()
+     * @throws IllegalStateException if the frame is not one this version knows,
+     *                               or claims more of anything than it has bytes for
+     */
+    void decode(ByteBuffer in, Snapshot snapshot, long time) {
+        byte type = in.get();
+        if (type != KEY && type != DELTA) {
+            throw new IllegalStateException("unknown frame type " + type);
+        }
+        long step = getVarlong(in);
+        int width = getVarint(in);
+        int height = getVarint(in);
+        int workers = getVarint(in);
+        int flags = in.get();
+        int mode = in.get();
+        if (mode < 0 || mode >= GRAVITY_MODES.length) {
+            throw new IllegalStateException("unknown gravity mode " + mode);
+        }
+        float decay = in.getFloat();
+        snapshot.receive(step, time, width, height, (flags & FLAG_DYNAMIC) != 0, (flags & FLAG_BOUNCE) != 0,
+                (flags & FLAG_HITS) != 0, GRAVITY_MODES[mode], decay, workers);
+
+        //  Gravity points, kept from the last frame if unchanged
+        if ((flags & FLAG_GRAVITY) != 0) {
+            int n = getCount(in, GRAVITY_BYTES, "gravity points");
+            if (gravX.length < n) {
+                gravX = new int[n];
+                gravY = new int[n];
+            }
+            gravCount = n;
+            for (int i = 0; i < gravCount; i++) {
+                gravX[i] = getSigned(in);
+                gravY[i] = getSigned(in);
+            }
+        }
+        snapshot.receiveGravity(gravCount);
+        for (int i = 0; i < gravCount; i++) {
+            snapshot.putGravity(i, gravX[i] / POSITION_SCALE, gravY[i] / POSITION_SCALE);
+        }
+
+        //  Triangles, slid from where the last frame had them
+        int triangleCount = getCount(in, TRIANGLE_BYTES, "Triangles");
+        reserve(triangleCount);
+        snapshot.receiveTriangles(triangleCount);
+        int id = -1;
+        int k = 0;
+        for (int i = 0; i < triangleCount; i++) {
+            id += getVarint(in);
+            while (k < count && ids[k] < id) {
+                k++;
+            }
+            boolean known = k < count && ids[k] == id;
+
+            int tx = getSigned(in);
+            int ty = getSigned(in);
+            int tvx = getSigned(in);
+            int tvy = getSigned(in);
+            if (known && type == DELTA) {
+                tx += x[k];
+                ty += y[k];
+                tvx += vx[k];
+                tvy += vy[k];
+            }
+            nextIds[i] = id;
+            nextX[i] = tx;
+            nextY[i] = ty;
+            nextVx[i] = tvx;
+            nextVy[i] = tvy;
+
+            int prevX = known ? x[k] : tx;
+            int prevY = known ? y[k] : ty;
+            snapshot.putTriangle(i, id, tx / POSITION_SCALE, ty / POSITION_SCALE,
+                    prevX / POSITION_SCALE, prevY / POSITION_SCALE, tvx / VELOCITY_SCALE, tvy / VELOCITY_SCALE);
+        }
+        count = triangleCount;
+        swap();
+
+        //  Bullets
+        int bulletCount = getCount(in, BULLET_BYTES, "Bullets");
+        snapshot.receiveBullets(bulletCount);
+        int bx = 0;
+        int by = 0;
+        int bvx = 0;
+        int bvy = 0;
+        for (int i = 0; i < bulletCount; i++) {
+            bx += getSigned(in);
+            by += getSigned(in);
+            bvx += getSigned(in);
+            bvy += getSigned(in);
+            snapshot.putBullet(i, bx / POSITION_SCALE, by / POSITION_SCALE, bvx / VELOCITY_SCALE, bvy / VELOCITY_SCALE);
+        }
+    }
+
+    /**
+     * Reads how many of something follow, checking the rest of the frame could hold them
+     * before anything is sized for them
+     *
+     * @param in    the frame
+     * @param bytes fewest bytes each takes
+     * @param what  what is being counted, for the message
+     * @return the amount
+     */
+    private static int getCount(ByteBuffer in, int bytes, String what) {
+        int n = getVarint(in);
+        if (n < 0 || n > in.remaining() / bytes) {
+            throw new IllegalStateException("frame claims " + (n & 0xFFFFFFFFL) + " " + what
+                    + " in " + in.remaining() + " bytes");
+        }
+        return n;
+    }
+
+    private void writeHeader(ByteBuffer out, byte type, Snapshot snapshot, int flags) {
+        out.put(type);
+        putVarlong(out, snapshot.getStep());
+        putVarint(out, snapshot.getWidth());
+        putVarint(out, snapshot.getHeight());
+        putVarint(out, snapshot.getWorkers());
+        out.put((byte) flags);
+        out.put((byte) snapshot.getGravityMode().ordinal());
+        out.putFloat(snapshot.getDecay());
+    }
+
+    /**
+     * Rounds the gravity points of a Snapshot, keeping them as the last frame's
+     *
+     * @param snapshot the Snapshot
+     * @return whether they differ from the last frame's
+     */
+    private boolean roundGravity(Snapshot snapshot) {
+        int n = snapshot.getGravityCount();
+        boolean changed = n != gravCount;
+        if (gravX.length < n) {
+            gravX = new int[n * 2];
+            gravY = new int[n * 2];
+        }
+        for (int i = 0; i < n; i++) {
+            int gx = round(snapshot.getGravityX(i), POSITION_SCALE);
+            int gy = round(snapshot.getGravityY(i), POSITION_SCALE);
+            changed |= gx != gravX[i] || gy != gravY[i];
+            gravX[i] = gx;
+            gravY[i] = gy;
+        }
+        gravCount = n;
+        return changed;
+    }
+
+    private void writeGravity(ByteBuffer out) {
+        putVarint(out, gravCount);
+        for (int i = 0; i < gravCount; i++) {
+            putSigned(out, gravX[i]);
+            putSigned(out, gravY[i]);
+        }
+    }
+
+    private static void putTriangle(ByteBuffer out, int tx, int ty, int tvx, int tvy) {
+        putSigned(out, tx);
+        putSigned(out, ty);
+        putSigned(out, tvx);
+        putSigned(out, tvy);
+    }
+
+    private void reserve(int n) {
+        if (nextIds.length < n) {
+            int length = Math.max(n, nextIds.length * 2);
+            nextIds = new int[length];
+            nextX = new int[length];
+            nextY = new int[length];
+            nextVx = new int[length];
+            nextVy = new int[length];
+        }
+    }
+
+    /**
+     * Makes the frame just written or read the last frame
+     */
+    private void swap() {
+        int[] t = ids;
+        ids = nextIds;
+        nextIds = t;
+        t = x;
+        x = nextX;
+        nextX = t;
+        t = y;
+        y = nextY;
+        nextY = t;
+        t = vx;
+        vx = nextVx;
+        nextVx = t;
+        t = vy;
+        vy = nextVy;
+        nextVy = t;
+    }
+
+    private static int round(float value, float scale) {
+        return Math.round(value * scale);
+    }
+
+    static void putVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static int getVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("varint too long");
+    }
+
+    private static void putVarlong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static long getVarlong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("varlong too long");
+    }
+
+    /**
+     * Writes a signed int, zigzagged so small negative numbers are small too
+     */
+    private static void putSigned(ByteBuffer out, int value) {
+        putVarint(out, (value << 1) ^ (value >> 31));
+    }
+
+    private static int getSigned(ByteBuffer in) {
+        int value = getVarint(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Reads an address, host:port or just a port on this machine
+     *
+     * @param address the address
+     * @return the address
+     * @throws IllegalArgumentException if the port is not a number
+     */
+    static InetSocketAddress parseAddress(String address) {
+        int colon = address.lastIndexOf(':');
+        if (colon < 0) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address));
+        }
+        return new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+    }
+}
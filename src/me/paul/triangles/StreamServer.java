@@ -0,0 +1,467 @@
+package me.paul.triangles;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Streams every new Snapshot of a window to any number of StreamClients over TCP,
+ * so other windows can show the same World without running it.
+ * <p>
+ * Each Snapshot is written once by a StreamCodec, as a delta frame,
+ * and the same bytes are queued for every viewer.
+ * Each viewer has its own thread, which sends whatever frames are queued in one write.
+ * A viewer that falls a few frames behind is skipped until it has room again,
+ * and is sent a key frame next, so it never holds up the window or the other viewers.
+ * <p>
+ * Frames are written straight into buffers from a pool, and go back to it once every viewer has sent them.
+ * The pool is filled as viewers join, to as many buffers as could ever be in flight,
+ * and buffers are taken from it in turn, so each is sized to the frames being sent before it is ever needed.
+ * Each viewer keeps its own view of every buffer, and its queue is a ring the window only adds to,
+ * so once every buffer has been used publishing allocates nothing.
+ * <p>
+ * Every frame is preceded by its length, a little-endian int.
+ * The stream starts with StreamCodec.MAGIC and VERSION
+ * @version 1.0
+ */
+
+class StreamServer {
+
+    /**
+     * Address to serve on, host:port, or just a port to only serve this machine
+     * Set with -Dtriangles.serve=address, off by default
+     */
+    static final String DEFAULT_ADDRESS = System.getProperty("triangles.serve");
+
+    /**
+     * Frames a viewer may fall behind before it is sent a key frame instead
+     */
+    private static final int QUEUE_FRAMES = 4;
+
+    private final ServerSocketChannel server;
+    private final Thread acceptor;
+
+    /**
+     * Viewers connected, replaced whole when one joins or leaves,
+     * so publishing can walk it without making an iterator
+     */
+    private volatile Viewer[] viewers;
+
+    private final StreamCodec codec;
+    private long lastStep;
+
+    /**
+     * Frames not in use by any viewer, taken by publish() and given back by whichever thread sends one last,
+     * a ring so the frame given back longest ago is taken first
+     */
+    private Frame[] free;
+    private int freeFirst;
+    private int freeCount;
+
+    /**
+     * Frames ever made, which is also how many a viewer may need a view of
+     */
+    private int made;
+
+    /**
+     * Size of the last delta frame, in bytes
+     */
+    private volatile int frameBytes;
+
+    /**
+     * Constructor for a StreamServer object, listening straight away
+     *
+     * @param address_ address to listen on, host:port or just a port
+     * @throws IOException if the address cannot be listened on
+     */
+
+    StreamServer(String address_) throws IOException {
+        InetSocketAddress address = StreamCodec.parseAddress(address_);
+        server = ServerSocketChannel.open();
+        server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        server.bind(address);
+
+        viewers = new Viewer[0];
+        codec = new StreamCodec();
+        lastStep = -1;
+        free = new Frame[QUEUE_FRAMES];
+        freeFirst = 0;
+        freeCount = 0;
+        made = 0;
+
+        acceptor = new Thread(this::accept, "StreamServer");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Sends a Snapshot to every viewer, if it is newer than the last sent
+     * Only to be called from the one thread drawing Snapshots
+     *
+     * @param snapshot the Snapshot to send
+     */
+    void publish(Snapshot snapshot) {
+        if (snapshot.getStep() <= lastStep) {
+            return;
+        }
+        lastStep = snapshot.getStep();
+
+        Viewer[] all = viewers;
+        boolean keyNeeded = false;
+        for (Viewer viewer : all) {
+            keyNeeded |= viewer.keyNeeded;
+        }
+
+        int bytes = 4 + StreamCodec.maxBytes(snapshot);
+        Frame delta = take(bytes);
+        Frame key = keyNeeded ? take(bytes) : null;
+        codec.encode(snapshot, delta.start(), key != null ? key.start() : null);
+        frameBytes = delta.finish();
+        if (key != null) {
+            key.finish();
+        }
+
+        for (Viewer viewer : all) {
+            if (!viewer.keyNeeded) {
+                viewer.offer(delta);
+            } else if (key != null) {
+                //  A viewer that joined since the check above waits for the next frame
+                viewer.offer(key);
+            }
+        }
+        delta.release();
+        if (key != null) {
+            key.release();
+        }
+    }
+
+    /**
+     * Takes a frame from the pool, or makes one if every frame is in flight
+     *
+     * @param bytes most bytes the frame will take
+     * @return the frame, held once by the caller
+     */
+    private Frame take(int bytes) {
+        Frame frame;
+        synchronized (this) {
+            if (freeCount == 0) {
+                make();
+            }
+            frame = free[freeFirst];
+            free[freeFirst] = null;
+            freeFirst = (freeFirst + 1) % free.length;
+            freeCount--;
+        }
+        frame.reserve(bytes);
+        frame.holders.set(1);
+        return frame;
+    }
+
+    private synchronized void give(Frame frame) {
+        free[(freeFirst + freeCount) % free.length] = frame;
+        freeCount++;
+    }
+
+    /**
+     * Makes a new frame and gives it to the pool, only called holding the lock
+     */
+    private void make() {
+        if (free.length == made) {
+            //  Room for every frame there is, first in line first
+            Frame[] grown = new Frame[made * 2];
+            for (int i = 0; i < freeCount; i++) {
+                grown[i] = free[(freeFirst + i) % free.length];
+            }
+            free = grown;
+            freeFirst = 0;
+        }
+        give(new Frame(made++));
+    }
+
+    private synchronized void add(Viewer viewer) {
+        Viewer[] all = Arrays.copyOf(viewers, viewers.length + 1);
+        all[all.length - 1] = viewer;
+        viewers = all;
+
+        //  Each viewer may hold a full queue, while a delta and a key frame are being written
+        while (made < all.length * QUEUE_FRAMES + 2) {
+            make();
+        }
+    }
+
+    private synchronized boolean remove(Viewer viewer) {
+        Viewer[] all = viewers;
+        for (int i = 0; i < all.length; i++) {
+            if (all[i] == viewer) {
+                Viewer[] rest = new Viewer[all.length - 1];
+                System.arraycopy(all, 0, rest, 0, i);
+                System.arraycopy(all, i + 1, rest, i, rest.length - i);
+                viewers = rest;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Takes in new viewers until closed, on its own thread
+     */
+    private void accept() {
+        while (server.isOpen()) {
+            try {
+                SocketChannel channel = server.accept();
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                Viewer viewer = new Viewer(channel);
+                add(viewer);
+                viewer.start();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                System.err.println("StreamServer: could not take a viewer, " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stops listening and drops every viewer
+     */
+    void close() {
+        try {
+            server.close();
+        } catch (IOException ignored) {
+            //  Closing anyway
+        }
+        for (Viewer viewer : viewers) {
+            viewer.close();
+        }
+    }
+
+    int getViewers() {
+        return viewers.length;
+    }
+
+    int getFrameBytes() {
+        return frameBytes;
+    }
+
+    int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * One frame, led by its length, shared by every viewer it is queued for
+     */
+    private class Frame {
+
+        /**
+         * Place of this frame among every frame made, where viewers keep their view of it
+         */
+        final int index;
+        ByteBuffer data;
+        int length;
+
+        /**
+         * Viewers yet to send this frame, and publish() while it is queuing it
+         */
+        final AtomicInteger holders;
+
+        Frame(int index_) {
+            index = index_;
+            data = ByteBuffer.allocate(0);
+            holders = new AtomicInteger();
+        }
+
+        void reserve(int bytes) {
+            if (data.capacity() < bytes) {
+                data = ByteBuffer.allocate(bytes * 2).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+
+        /**
+         * @return the buffer, ready to write a frame after its length
+         */
+        ByteBuffer start() {
+            data.clear();
+            data.position(4);
+            return data;
+        }
+
+        /**
+         * Writes the length ahead of the frame just written
+         *
+         * @return bytes of the frame, with its length
+         */
+        int finish() {
+            length = data.position();
+            data.putInt(0, length - 4);
+            return length;
+        }
+
+        void retain() {
+            holders.incrementAndGet();
+        }
+
+        void release() {
+            if (holders.decrementAndGet() == 0) {
+                give(this);
+            }
+        }
+    }
+
+    /**
+     * One connected StreamClient, and the thread sending to it
+     */
+    private class Viewer implements Runnable {
+
+        private final SocketChannel channel;
+        private final Thread writer;
+
+        /**
+         * Frames queued, a ring only offer() adds to and only the writer takes from
+         */
+        private final Frame[] queue;
+        private volatile long added;
+        private volatile long taken;
+
+        /**
+         * This viewer's view of every frame, and the buffer each view is of,
+         * so a frame is sent from its own position without a new view every time
+         */
+        private ByteBuffer[] views;
+        private ByteBuffer[] viewed;
+
+        /**
+         * Whether the next frame must be a key frame, as it is for a new viewer
+         */
+        private volatile boolean keyNeeded;
+
+        Viewer(SocketChannel channel_) {
+            channel = channel_;
+            queue = new Frame[QUEUE_FRAMES];
+            views = new ByteBuffer[QUEUE_FRAMES];
+            viewed = new ByteBuffer[QUEUE_FRAMES];
+            keyNeeded = true;
+            writer = new Thread(this, "StreamServer viewer " + channel.socket().getRemoteSocketAddress());
+            writer.setDaemon(true);
+        }
+
+        void start() {
+            writer.start();
+        }
+
+        /**
+         * Queues a frame, or skips it and asks for a key frame if the queue is full
+         * Only called by publish()
+         *
+         * @param frame the frame, shared with other viewers
+         */
+        void offer(Frame frame) {
+            long at = added;
+            if (at - taken == QUEUE_FRAMES) {
+                //  Too far behind, skip straight to the next key frame
+                keyNeeded = true;
+                return;
+            }
+            frame.retain();
+            queue[(int) (at % QUEUE_FRAMES)] = frame;
+            added = at + 1;
+            keyNeeded = false;
+            LockSupport.unpark(writer);
+        }
+
+        @Override
+        public void run() {
+            try {
+                ByteBuffer hello = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+                hello.putInt(StreamCodec.MAGIC).putInt(StreamCodec.VERSION).flip();
+                ByteBuffer[] frames = new ByteBuffer[QUEUE_FRAMES];
+                frames[0] = hello;
+                write(frames, 1);
+
+                while (channel.isOpen() && !Thread.interrupted()) {
+                    long from = taken;
+                    long to = added;
+                    if (from == to) {
+                        LockSupport.park(this);
+                        continue;
+                    }
+                    int n = (int) (to - from);
+                    for (int i = 0; i < n; i++) {
+                        frames[i] = view(queue[(int) ((from + i) % QUEUE_FRAMES)]);
+                    }
+                    write(frames, n);
+                    for (int i = 0; i < n; i++) {
+                        int slot = (int) ((from + i) % QUEUE_FRAMES);
+                        Frame frame = queue[slot];
+                        queue[slot] = null;
+                        frames[i] = null;
+                        frame.release();
+                    }
+                    taken = to;
+                }
+            } catch (IOException e) {
+                //  The viewer went away
+            } finally {
+                close();
+                //  Hand back what was never sent
+                for (long i = taken; i < added; i++) {
+                    queue[(int) (i % QUEUE_FRAMES)].release();
+                }
+            }
+        }
+
+        /**
+         * Gets this viewer's view of a frame, ready to send from its start
+         */
+        private ByteBuffer view(Frame frame) {
+            if (views.length <= frame.index) {
+                views = Arrays.copyOf(views, frame.index * 2 + 1);
+                viewed = Arrays.copyOf(viewed, views.length);
+            }
+            ByteBuffer view = views[frame.index];
+            if (viewed[frame.index] != frame.data) {
+                view = frame.data.duplicate();
+                views[frame.index] = view;
+                viewed[frame.index] = frame.data;
+            }
+            view.clear();
+            view.limit(frame.length);
+            return view;
+        }
+
+        /**
+         * Sends frames in as few writes as possible
+         */
+        private void write(ByteBuffer[] frames, int n) throws IOException {
+            long remaining = 0;
+            for (int i = 0; i < n; i++) {
+                remaining += frames[i].remaining();
+            }
+            while (remaining > 0) {
+                remaining -= channel.write(frames, 0, n);
+            }
+        }
+
+        void close() {
+            if (!remove(this)) {
+                return;
+            }
+            writer.interrupt();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                //  Closing anyway
+            }
+        }
+    }
+}
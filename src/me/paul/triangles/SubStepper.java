@@ -0,0 +1,174 @@
+package me.paul.triangles;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Integrates Bullets around a single gravity point, for TRUE and POINT gravity.
+ * Gravity falls off with the square of distance all the way in,
+ * softened by SOFTENING so it stays finite at the point itself.
+ * <p>
+ * Most Bullets are far enough from the point that one step per frame is plenty.
+ * They only get their acceleration here, and are moved by the BulletKernel as always,
+ * adding acceleration to velocity and then velocity to location.
+ * That is a leapfrog step, with every velocity kept half a frame behind its location.
+ * <p>
+ * A Bullet close to the point, or moving fast for how close it is,
+ * is instead moved here in several equal leapfrog steps (kick, drift, kick), up to MAX_SUBSTEPS.
+ * It takes as many as it needs at whichever end of the frame needs more,
+ * so a Bullet diving in takes the same steps as one climbing back out, and orbits do not slowly gain or lose energy.
+ * Its velocity is brought level with its location before the steps, and put back half a frame behind after,
+ * so one step here is the same as the kernel's step, and a Bullet gains no energy passing from one to the other.
+ * It is then left one move short of where the steps ended,
+ * so the kernel finishes it like any other Bullet, decaying, bouncing and packing it
+ * @version 1.0
+ */
+
+class SubStepper {
+
+    /**
+     * Distance gravity is softened by, so it stays finite at the gravity point
+     */
+    static final float SOFTENING = BulletStore.RADIUS;
+    private static final float SOFTENING_SQ = SOFTENING * SOFTENING;
+
+    /**
+     * Most of its orbit, in radians, and most of its distance to the point, a Bullet may cover in one step
+     * A Bullet covering less in a whole frame takes the frame in one step, beyond about 160 pixels from the point
+     */
+    private static final float ETA = 0.05f;
+    private static final float ETA_SQ = ETA * ETA;
+    private static final float DRIFT = 0.5f;
+    private static final float DRIFT_SQ = DRIFT * DRIFT;
+    private static final float ETA_OVER_DRIFT_SQ = ETA_SQ / DRIFT_SQ;
+
+    /**
+     * Most steps a Bullet is split into in one frame
+     */
+    static final int MAX_SUBSTEPS = 64;
+
+    private SubStepper() {
+    }
+
+    /**
+     * Gives every Bullet in a range its acceleration for the kernel,
+     * sub-stepping the ones too close to the gravity point to take the frame in one step
+     *
+     * @param from  first slot to integrate
+     * @param to    slot after the last one to integrate
+     * @param gx    horizontal location of the gravity point
+     * @param gy    vertical location of the gravity point
+     * @param decay velocity kept every frame, as the kernel will apply it
+     * @return amount of Bullets sub-stepped
+     */
+    static int integrate(float[] x, float[] y, float[] vx, float[] vy, float[] ax, float[] ay,
+                         int from, int to, float gx, float gy, float decay) {
+        int near = 0;
+        for (int i = from; i < to; i++) {
+            float dx = gx - x[i];
+            float dy = gy - y[i];
+            float softSq = dx * dx + dy * dy + SOFTENING_SQ;
+            float pull = pull(softSq);
+
+            //  Squared rate the Bullet turns around the point (pull), or closes on it (speed / distance),
+            //  each scaled to what one step may cover
+            float speedSq = vx[i] * vx[i] + vy[i] * vy[i];
+            float rateSq = Math.max(pull, speedSq / softSq * ETA_OVER_DRIFT_SQ);
+            if (rateSq <= ETA_SQ) {
+                ax[i] = dx * pull;
+                ay[i] = dy * pull;
+                continue;
+            }
+
+            //  As many steps as the Bullet needs at either end of the frame,
+            //  so a Bullet diving in takes the same steps as one climbing out
+            float px = x[i];
+            float py = y[i];
+            float qx = vx[i];
+            float qy = vy[i];
+            int steps = steps((float) Math.sqrt(rateSq));
+            int needed = steps(leapfrog(x, y, vx, vy, i, px, py, qx, qy, gx, gy, steps));
+            if (needed > steps) {
+                leapfrog(x, y, vx, vy, i, px, py, qx, qy, gx, gy, needed);
+            }
+
+            //  Leave it one kernel move short of where the steps ended
+            ax[i] = 0;
+            ay[i] = 0;
+            x[i] -= vx[i] * decay;
+            y[i] -= vy[i] * decay;
+            near++;
+        }
+        return near;
+    }
+
+    /**
+     * Moves one Bullet through a whole frame in equal leapfrog steps
+     * The velocity read and written is half a frame behind, as the kernel keeps it
+     *
+     * @param px    horizontal location at the start of the frame
+     * @param py    vertical location at the start of the frame
+     * @param qx    horizontal velocity at the start of the frame
+     * @param qy    vertical velocity at the start of the frame
+     * @param steps amount of steps
+     * @return rate of the Bullet at the end of the frame, as steps() takes it
+     */
+    private static float leapfrog(float[] x, float[] y, float[] vx, float[] vy, int i,
+                                  float px, float py, float qx, float qy, float gx, float gy, int steps) {
+        float dx = gx - px;
+        float dy = gy - py;
+        float softSq = dx * dx + dy * dy + SOFTENING_SQ;
+        float pull = pull(softSq);
+        float accX = dx * pull;
+        float accY = dy * pull;
+
+        //  Level with the location
+        qx += accX * 0.5f;
+        qy += accY * 0.5f;
+
+        float dt = 1f / steps;
+        float half = dt * 0.5f;
+        for (int s = 0; s < steps; s++) {
+            qx += accX * half;
+            qy += accY * half;
+            px += qx * dt;
+            py += qy * dt;
+
+            dx = gx - px;
+            dy = gy - py;
+            softSq = dx * dx + dy * dy + SOFTENING_SQ;
+            pull = pull(softSq);
+            accX = dx * pull;
+            accY = dy * pull;
+
+            qx += accX * half;
+            qy += accY * half;
+        }
+
+        //  Back to half a frame behind
+        x[i] = px;
+        y[i] = py;
+        vx[i] = qx - accX * 0.5f;
+        vy[i] = qy - accY * 0.5f;
+        return (float) Math.sqrt(Math.max(pull, (qx * qx + qy * qy) / softSq * ETA_OVER_DRIFT_SQ));
+    }
+
+    /**
+     * Steps a Bullet needs for a frame
+     *
+     * @param rate how fast the Bullet turns around or closes on the point, per frame
+     * @return amount of steps, from 1 to MAX_SUBSTEPS
+     */
+    private static int steps(float rate) {
+        return Math.min(MAX_SUBSTEPS, Math.max(1, (int) Math.ceil(rate / ETA)));
+    }
+
+    /**
+     * Acceleration towards the gravity point per pixel of offset from it
+     *
+     * @param softSq squared distance to the point, plus the squared softening
+     * @return GRAVITY_CONST / softened distance cubed
+     */
+    private static float pull(float softSq) {
+        return BulletStore.GRAVITY_CONST / (softSq * (float) Math.sqrt(softSq));
+    }
+}
@@ -0,0 +1,137 @@
+package me.paul.triangles;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Splits the World into a grid of equal tiles, for a BulletStore that updates Bullets by where they are.
+ * Tiles are numbered row by row from the top left.
+ * A location off the edge of the World belongs to the nearest tile.
+ * <p>
+ * Also holds how many Bullets were in every tile after the last update,
+ * and how long each tile took to update
+ * @version 1.0
+ */
+
+class TileGrid {
+
+    /**
+     * Tiles to split the World into, columns x rows
+     * Set with -Dtriangles.tiles=4x2, off by default
+     */
+    static final String DEFAULT_TILES = System.getProperty("triangles.tiles");
+
+    private final int columns;
+    private final int rows;
+
+    /**
+     * Tiles per pixel, across and down
+     */
+    private float columnScale;
+    private float rowScale;
+
+    /**
+     * Bullets in every tile after the last update, and its update time in nanoseconds
+     */
+    private final int[] bullets;
+    private final long[] times;
+
+    /**
+     * Bullets that moved to another tile in the last update
+     */
+    private int migrated;
+
+    /**
+     * Constructor for a TileGrid object
+     *
+     * @param columns_ tiles across, at least 1
+     * @param rows_    tiles down, at least 1
+     */
+
+    TileGrid(int columns_, int rows_) {
+        columns = Math.max(1, columns_);
+        rows = Math.max(1, rows_);
+        bullets = new int[columns * rows];
+        times = new long[columns * rows];
+        setSize(1, 1);
+    }
+
+    /**
+     * Reads a grid size
+     *
+     * @param tiles columns x rows, such as 4x2
+     * @return the TileGrid, or null if tiles is null
+     * @throws IllegalArgumentException if tiles is not columns x rows
+     */
+    static TileGrid parse(String tiles) {
+        if (tiles == null) {
+            return null;
+        }
+        int x = tiles.indexOf('x');
+        if (x < 0) {
+            throw new IllegalArgumentException("tiles must be columns x rows, such as 4x2, not " + tiles);
+        }
+        return new TileGrid(Integer.parseInt(tiles.substring(0, x).trim()), Integer.parseInt(tiles.substring(x + 1).trim()));
+    }
+
+    /**
+     * Fits the grid to the size of the World
+     *
+     * @param width  width of the World
+     * @param height height of the World
+     */
+    void setSize(int width, int height) {
+        columnScale = columns / (float) Math.max(1, width);
+        rowScale = rows / (float) Math.max(1, height);
+    }
+
+    /**
+     * Getter method for the tile holding a location
+     *
+     * @param x horizontal location
+     * @param y vertical location
+     * @return number of the tile
+     */
+    int tileOf(float x, float y) {
+        int column = (int) (x * columnScale);
+        int row = (int) (y * rowScale);
+        column = column < 0 ? 0 : column >= columns ? columns - 1 : column;
+        row = row < 0 ? 0 : row >= rows ? rows - 1 : row;
+        return row * columns + column;
+    }
+
+    int getColumns() {
+        return columns;
+    }
+
+    int getRows() {
+        return rows;
+    }
+
+    int getCount() {
+        return columns * rows;
+    }
+
+    int getBullets(int tile) {
+        return bullets[tile];
+    }
+
+    void setBullets(int tile, int n) {
+        bullets[tile] = n;
+    }
+
+    long getTime(int tile) {
+        return times[tile];
+    }
+
+    void setTime(int tile, long nanos) {
+        times[tile] = nanos;
+    }
+
+    int getMigrated() {
+        return migrated;
+    }
+
+    void setMigrated(int migrated_) {
+        migrated = migrated_;
+    }
+}
@@ -1,40 +1,59 @@
 package me.paul.triangles;
 
-import processing.core.*;
+import processing.core.PConstants;
+import processing.core.PVector;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * @author Paul Wrubel - VoxaelFox
  * <p>
  * Holds a reference to a Triangle Object.
- * This is what is drawn on the window.
+ * This is what is drawn on the window, by the TriangleManager.
  * <p>
- * Also holds the list of bullets that belongs to this Triangle
+ * Bullets fired by this Triangle live in the BulletStore,
+ * tagged with this Triangle's id
  * @version 1.0
  */
 
 class Triangle {
 
     /**
-     * Default values for Saturation, Brightness
-     * Of triangles
+     * Magnitude of movement with arrow keys
      */
-    private static final float SAT = 85;
-    private static final float BRIGHT = 100;
+    private static final float MAG = 4;
 
     /**
-     * Stroke weight default
-     * And Magnitude of movement with arrow keys
+     * Geometry of a Triangle pointing up, centred on its location:
+     * the tip at (0, TIP_Y), and the base corners at (-BASE_X, BASE_Y) and (BASE_X, BASE_Y)
+     * RADIUS is the distance to the furthest corner
      */
-    private static final float STROKE_WEIGHT = 5;
-    private static final float MAG = 4;
+    static final float TIP_Y = -45;
+    static final float BASE_X = 30;
+    static final float BASE_Y = 36;
+    static final float RADIUS = (float) Math.max(-TIP_Y, Math.sqrt(BASE_X * BASE_X + BASE_Y * BASE_Y));
+
+    /**
+     * Amount of Bullet hits a Triangle can take in hit mode
+     */
+    private static final int HEALTH = 3;
+
+    /**
+     * Size of a Triangle in a checkpoint
+     */
+    static final int CHECKPOINT_BYTES = 24;
 
     /**
-     * A reference to a Triangles Object
-     * Needed to draw to the buffer from PApplet
+     * A reference to the World this Triangle lives in
+     * Needed to fire bullets into
      */
-    private TriangleManager manager;
+    private World world;
+
+    /**
+     * Unique id, used to tag the bullets this Triangle fires
+     */
+    private int id;
 
     /**
      * Location and heading of triangles on window
@@ -44,36 +63,39 @@ class Triangle {
     private PVector velocity;
 
     /**
-     * bullet list, along with a copy list to remove off-screen bullets
+     * Step taken when orbiting, reused every update
      */
-    private ArrayList<Bullet> bullets;
-    private ArrayList<Bullet> bulletsToRemove;
+    private PVector turn;
 
     /**
-     * Shape for triangle geometry
+     * Hits left before this Triangle is destroyed
      */
-    private PShape tri;
+    private int health;
+
+    /**
+     * Slot of this Triangle in the SpatialHash it is kept in, or -1
+     * Only touched by SpatialHash
+     */
+    int hashSlot;
 
     /**
      * Constructor for a Triangle object
      *
-     * @param manager_ Triangles reference needed to draw to the screen
-     * @param pos_     coordinate location of this triangle
+     * @param world_ World reference needed to fire bullets
+     * @param id_    unique id of this triangle
+     * @param pos_   coordinate location of this triangle
      */
 
-    Triangle(TriangleManager manager_, PVector pos_) {
+    Triangle(World world_, int id_, PVector pos_) {
 
-        manager = manager_;
+        world = world_;
+        id = id_;
         pos = pos_;
-        mouse = new PVector(manager.mouseX, manager.mouseY);
+        mouse = new PVector(0, 0);
         velocity = new PVector(0, -1).mult(MAG);
-
-        //  Initialization
-        bullets = new ArrayList<>();
-        bulletsToRemove = new ArrayList<>();
-
-        // Create framework for triangle geometry
-        tri = manager.createShape(manager.TRIANGLE, 0, -45, -30f, 36f, 30f, 36f);
+        turn = new PVector();
+        health = HEALTH;
+        hashSlot = -1;
     }
 
     /**
@@ -85,98 +107,192 @@ class Triangle {
         return pos;
     }
 
+    /**
+     * Getter method for id
+     *
+     * @return unique id of this triangle
+     */
+    int getId() {
+        return id;
+    }
+
+    /**
+     * Getter method for heading
+     *
+     * @return velocity this triangle is heading with
+     */
+    PVector getVelocity() {
+        return velocity;
+    }
+
     /**
      * Updates Triangle data, such as
-     * location, heading, color, and bullet list
+     * location and heading
+     *
+     * @param input state of the mouse and arrow keys
      */
-    void update() {
+    void update(InputState input) {
 
-        mouse.set(manager.mouseX, manager.mouseY);
+        mouse.set(input.getMouseX(), input.getMouseY());
+        boolean[] keyCodes = input.getKeyCodes();
 
         //  Perform trigonometric operation to get new location from heading
         //  Applicable if keys are pressed
         if (pos.dist(mouse) > velocity.mag()/2) {
 
-            if (manager.getKeyCodes()[manager.LEFT]) {
-                pos.add(velocity.copy().rotate(-PApplet.acos(velocity.mag() / (2 * PVector.dist(pos, mouse)))));
+            if (keyCodes[PConstants.LEFT]) {
+                pos.add(turn.set(velocity).rotate(-(float) Math.acos(velocity.mag() / (2 * PVector.dist(pos, mouse)))));
             }
-            if (manager.getKeyCodes()[manager.RIGHT]) {
-                pos.add(velocity.copy().rotate(PApplet.acos(velocity.mag() / (2 * PVector.dist(pos, mouse)))));
+            if (keyCodes[PConstants.RIGHT]) {
+                pos.add(turn.set(velocity).rotate((float) Math.acos(velocity.mag() / (2 * PVector.dist(pos, mouse)))));
             }
-            if (manager.getKeyCodes()[manager.UP]) {
+            if (keyCodes[PConstants.UP]) {
                 pos.add(velocity);
             }
-            if (manager.getKeyCodes()[manager.DOWN]) {
+            if (keyCodes[PConstants.DOWN]) {
                 pos.sub(velocity);
             }
 
             if (pos.dist(mouse) > 0) {
-                velocity.set(PVector.sub(mouse, pos).normalize().mult(MAG));
+                velocity.set(mouse).sub(pos).normalize().mult(MAG);
             } else {
                 velocity.set(0, -1).mult(MAG);
             }
         } else {
             velocity.set(0, -1).mult(MAG);
         }
+    }
 
-        //  Add off-screen bullets to the remove copy list
-        for (Bullet b : bullets) {
-            if (b.getDeleteStatus()) {
-                bulletsToRemove.add(b);
-            }
-        }
-
-        // Remove bullets from main list and clear copy list
-        bullets.removeAll(bulletsToRemove);
-        bulletsToRemove.clear();
+    /**
+     * Checks if a circle, such as a Bullet, overlaps this Triangle
+     *
+     * @param cx     horizontal location of the circle's centre
+     * @param cy     vertical location of the circle's centre
+     * @param radius radius of the circle
+     * @return true if they overlap
+     */
+    boolean overlaps(float cx, float cy, float radius) {
+        float speed = velocity.mag();
+        return overlaps(pos.x, pos.y, velocity.x / speed, velocity.y / speed, cx, cy, radius);
     }
 
     /**
-     * Draws a Triangle to the screen
+     * Checks if a circle overlaps a Triangle, from a copy of where it is and where it points
+     *
+     * @param x      horizontal location of the Triangle
+     * @param y      vertical location of the Triangle
+     * @param upX    horizontal part of the Triangle's heading, as a unit vector
+     * @param upY    vertical part of the Triangle's heading, as a unit vector
+     * @param cx     horizontal location of the circle's centre
+     * @param cy     vertical location of the circle's centre
+     * @param radius radius of the circle
+     * @return true if they overlap
      */
-    void draw() {
+    static boolean overlaps(float x, float y, float upX, float upY, float cx, float cy, float radius) {
+        //  Every corner is within RADIUS of the centre, so nothing further than that plus the circle can touch.
+        //  A pixel to spare, so rounding never rejects a circle the full test would find touching
+        float wx = cx - x;
+        float wy = cy - y;
+        float reach = RADIUS + radius + 1;
+        if (wx * wx + wy * wy > reach * reach) {
+            return false;
+        }
 
-        // Set color and drawing properties
-        float hue = 180 + PApplet.degrees(velocity.copy().rotate(PApplet.radians(-90)).heading());
-        tri.setFill(manager.color(hue, SAT, BRIGHT));
-        manager.fill(manager.color(hue, SAT, BRIGHT));
-        tri.setStroke(manager.color(0, 0, 0));
-        manager.stroke(manager.color(0, 0, 0));
-        tri.setStrokeWeight(STROKE_WEIGHT);
+        //  Move the circle into the Triangle's own space, where the tip points up
+        float lx = wx * -upY + wy * upX;
+        float ly = -(wx * upX + wy * upY);
 
-        // Move origin to our location and rotate so up is our heading
-        manager.translate(pos.x, pos.y);
-        manager.rotate(velocity.copy().rotate(PApplet.radians(90)).heading());
+        //  Inside if on the inner side of all three edges
+        float e0 = edgeSide(0, TIP_Y, BASE_X, BASE_Y, lx, ly);
+        float e1 = edgeSide(BASE_X, BASE_Y, -BASE_X, BASE_Y, lx, ly);
+        float e2 = edgeSide(-BASE_X, BASE_Y, 0, TIP_Y, lx, ly);
+        if (e0 >= 0 && e1 >= 0 && e2 >= 0) {
+            return true;
+        }
 
-        // Draw our preset geometry to screen
-        manager.shape(tri);
+        //  Otherwise, close enough to an edge
+        float r2 = radius * radius;
+        return edgeDistSq(0, TIP_Y, BASE_X, BASE_Y, lx, ly) <= r2
+                || edgeDistSq(BASE_X, BASE_Y, -BASE_X, BASE_Y, lx, ly) <= r2
+                || edgeDistSq(-BASE_X, BASE_Y, 0, TIP_Y, lx, ly) <= r2;
+    }
 
-        // Un-rotate and move origin back to reset
-        manager.rotate(-velocity.copy().rotate(PApplet.radians(90)).heading());
-        manager.translate(-pos.x, -pos.y);
+    /**
+     * Which side of the edge from (x0, y0) to (x1, y1) a point is on
+     * Positive on the inner side, for corners in clockwise order on screen
+     */
+    private static float edgeSide(float x0, float y0, float x1, float y1, float px, float py) {
+        return (x1 - x0) * (py - y0) - (y1 - y0) * (px - x0);
     }
 
     /**
-     * Adds a bullet to this Triangle's bullet list
+     * Squared distance from a point to the edge from (x0, y0) to (x1, y1)
      */
-    void addBullet() {
-        //  Calculate starting locations
-        PVector bulletPos = pos.copy().add(velocity.copy().mult(10));
+    private static float edgeDistSq(float x0, float y0, float x1, float y1, float px, float py) {
+        float ex = x1 - x0;
+        float ey = y1 - y0;
+        float t = ((px - x0) * ex + (py - y0) * ey) / (ex * ex + ey * ey);
+        t = t < 0 ? 0 : t > 1 ? 1 : t;
+        float dx = x0 + ex * t - px;
+        float dy = y0 + ey * t - py;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Takes a hit from a Bullet
+     *
+     * @return true if this Triangle is now destroyed
+     */
+    boolean damage() {
+        health--;
+        return health <= 0;
+    }
 
-        //  Add to list
-        bullets.add(new Bullet(manager, bulletPos, velocity.copy().normalize(), manager.getBounceMode()));
+    boolean isDestroyed() {
+        return health <= 0;
     }
 
-    void clearBullets() {
-        bullets.clear();
+    /**
+     * Writes this Triangle to a checkpoint
+     *
+     * @param out where to write, with room for CHECKPOINT_BYTES
+     */
+    void write(ByteBuffer out) {
+        out.putInt(id);
+        out.putFloat(pos.x);
+        out.putFloat(pos.y);
+        out.putFloat(velocity.x);
+        out.putFloat(velocity.y);
+        out.putInt(health);
     }
 
     /**
-     * Getter method for the bullet list of this Triangle
+     * Reads a Triangle back from a checkpoint
      *
-     * @return This Triangles bullet list
+     * @param world_ World reference needed to fire bullets
+     * @param in     where to read from
+     * @return the Triangle
+     * @throws IOException if the Triangle is already dead
      */
-    ArrayList<Bullet> bullets() {
-        return bullets;
+    static Triangle read(World world_, ByteBuffer in) throws IOException {
+        Triangle t = new Triangle(world_, in.getInt(), new PVector(in.getFloat(), in.getFloat()));
+        t.velocity.set(in.getFloat(), in.getFloat());
+        t.health = in.getInt();
+        if (t.health <= 0) {
+            throw new IOException("Triangle " + t.id + " with health " + t.health);
+        }
+        return t;
+    }
+
+    /**
+     * Fires a bullet from the tip of this Triangle
+     */
+    void addBullet() {
+        //  Calculate starting location and heading
+        float speed = velocity.mag();
+        float dirX = velocity.x / speed;
+        float dirY = velocity.y / speed;
+
+        world.getBullets().add(pos.x + velocity.x * 10, pos.y + velocity.y * 10, dirX, dirY, id);
     }
 }
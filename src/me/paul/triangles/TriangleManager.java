@@ -1,17 +1,20 @@
 package me.paul.triangles;
 
 import processing.core.PApplet;
-import processing.core.PVector;
 import processing.event.KeyEvent;
 import processing.event.MouseEvent;
 
-import java.util.ArrayList;
+import java.io.IOException;
 
 /**
  *  @version 1.0
  *  @author Paul Wrubel - VoxaelFox
  *
  *  Creates Triangles on a PApplet window supported by processing libraries.
+ *  The simulation itself lives in the World, stepped on its own thread by a Simulation.
+ *  This class only feeds it input and draws its latest Snapshot.
+ *  It can also stream its Snapshots to other windows, or only draw those streamed from another.
+ *  When frames take longer than their budget, a FrameGovernor lowers how much detail is drawn.
  *
  *  Features include:
  *      Triangles aim at mouse
@@ -50,6 +53,10 @@ import java.util.ArrayList;
  *
  *      ENTER:          Toggles dynamic / static mode
  *
+ *      s:              Saves a checkpoint of the world
+ *      z:              Restores the last checkpoint
+ *      v:              Pauses / resumes frame capture, if capturing
+ *
  */
 
 public class TriangleManager extends PApplet {
@@ -72,56 +79,65 @@ public class TriangleManager extends PApplet {
      * Stroke weight for the window border and crosshairs
      * Ranges from 0 - INF
      */
-    private static final float BORDER_WEIGHT = 12;
+    private static final float BORDER_WEIGHT = World.BORDER_WEIGHT;
     private static final float CROSSHAIRS_WEIGHT = 5;
 
     /**
-     * Limit of the amount of Triangles and Bullets in the window
-     * Ranges from 0 - INF
+     * The simulation being drawn, running on its own thread
      */
-    private static final int TRIANGLE_LIMIT = 500;
-    private static final int BULLET_LIMIT = 1500;
+    private Simulation sim;
 
     /**
-     * Frequency of the creation (and removal) of Triangles and Bullets in dynamic mode
-     * 1 writes every frame, 5 every 5 frames, and so on.
-     * Lower values are faster
-     * Ranges from 1 - INF
+     * Timings of every phase of the frame, shown on the HUD
      */
-    private static final int TRIANGLE_ADD_FREQ = 4;
-    private static final int TRIANGLE_REMOVE_FREQ = 4;
-    private static final int BULLET_FREQ = 4;
+    private Metrics metrics;
 
-    /**
-     * Controls mode of program
-     * Dynamic mode:
-     * Continuous creation and removal of Triangles and Bullets
-     * Smooth and constant movement of window when changing perspective
-     * Static mode:
-     * Every creation requires a mouse click or key press
-     * Perspective movement jumps to preset values and is block-like
-     */
-    private boolean dynamic;
-    private boolean bounce;
     private boolean onControls;
-    private Gravity gravityMode;
-    private ArrayList<PVector> gravList;
-    private float decay;
     private ControlsBox controls;
 
     /**
-     * References to all on-screen Triangles
+     * Draw every Bullet and Triangle in one batch each
      */
-    private ArrayList<Triangle> triangles;
-    private int bulletCount;
+    private BulletRenderer bulletRenderer;
+    private TriangleRenderer triangleRenderer;
 
     /**
-     * Arrays to save state of all key and mouse presses concurrently
-     * (currently not supported by processing, unfortunately)
+     * Picks how much detail to draw this frame, to keep within the frame budget
      */
-    private boolean[] mouseButtons;
-    private boolean[] keys;
-    private boolean[] keyCodes;
+    private FrameGovernor governor;
+    private Quality quality;
+
+    /**
+     * Writes the debug text, straight to the window or through its own buffer
+     */
+    private Hud hud;
+
+    /**
+     * Line of HUD text being written, reused for every line
+     */
+    private HudText line;
+
+    /**
+     * Title the window was last given, only set again when it changes
+     */
+    private String title;
+
+    /**
+     * Writes every drawn frame to a folder, if -Dtriangles.capture is set
+     */
+    private FrameCapture capture;
+    private boolean capturing;
+
+    /**
+     * Sends every Snapshot to viewers, if -Dtriangles.serve is set
+     */
+    private StreamServer server;
+
+    /**
+     * Draws Snapshots streamed from another window instead of running a Simulation,
+     * if -Dtriangles.view is set
+     */
+    private StreamClient viewer;
 
     /**
      * Called once, only to set window size and render method
@@ -140,20 +156,23 @@ public class TriangleManager extends PApplet {
         frameRate(60);
 
         //  Initial values
-        dynamic = false;
-        bounce = false;
-        gravityMode = Gravity.OFF;
-        decay = 0.99f;
         onControls = true;
 
         controls = new ControlsBox(this);
-        gravList = new ArrayList<>();
-        gravList.add(new PVector(width / 2, height / 2));
-        triangles = new ArrayList<>();
-        bulletCount = 0;
-        mouseButtons = new boolean[40];
-        keys = new boolean[128];
-        keyCodes = new boolean[41];
+        metrics = new Metrics(Metrics.DEFAULT_CSV);
+        try {
+            governor = new FrameGovernor(FrameGovernor.DEFAULT_BUDGET_MS, FrameGovernor.DEFAULT_QUALITY);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Could not hold quality " + FrameGovernor.DEFAULT_QUALITY + ", following the load instead");
+            governor = new FrameGovernor(FrameGovernor.DEFAULT_BUDGET_MS, "auto");
+        }
+        if (StreamClient.DEFAULT_ADDRESS != null) {
+            viewer = new StreamClient(StreamClient.DEFAULT_ADDRESS);
+        } else {
+            startSimulation();
+            startServer();
+        }
+        startCapture();
 
         //  Can resize window (alpha)
         surface.setResizable(true);
@@ -167,22 +186,131 @@ public class TriangleManager extends PApplet {
         background(color(0, 0, 0));
         //  To avoid rendering artifacts from 3D mode
         //  Essentially tells renderer to just ignore z-dimension
+
+        bulletRenderer = new BulletRenderer();
+        triangleRenderer = new TriangleRenderer();
+        hud = new Hud(this, governor, sim, viewer, server, capture);
+        line = new HudText();
+
+        if (viewer != null) {
+            viewer.start();
+        } else {
+            sim.start();
+        }
+    }
+
+    /**
+     * Starts streaming Snapshots if -Dtriangles.serve is set
+     */
+    private void startServer() {
+        if (StreamServer.DEFAULT_ADDRESS == null) {
+            return;
+        }
+        try {
+            server = new StreamServer(StreamServer.DEFAULT_ADDRESS);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Could not stream, " + e.getMessage());
+        }
+    }
+
+    /**
+     * Starts capturing frames if -Dtriangles.capture is set
+     */
+    private void startCapture() {
+        if (FrameCapture.DEFAULT_DIR == null) {
+            return;
+        }
+        try {
+            capture = new FrameCapture(FrameCapture.DEFAULT_DIR, FrameCapture.DEFAULT_FORMAT,
+                    FrameCapture.DEFAULT_WORKERS, FrameCapture.DEFAULT_BLOCK);
+            capturing = true;
+        } catch (IOException e) {
+            System.err.println("Could not capture frames, " + e.getMessage());
+        }
+    }
+
+    /**
+     * Creates the Simulation, playing back or recording input
+     * if -Dtriangles.replay or -Dtriangles.record is set,
+     * or starting from a checkpoint if -Dtriangles.restore is set
+     */
+    private void startSimulation() {
+        InputReplay replay = null;
+        if (InputReplay.DEFAULT_PATH != null) {
+            try {
+                replay = new InputReplay(InputReplay.DEFAULT_PATH);
+            } catch (IOException e) {
+                System.err.println("Could not play back input, " + e.getMessage());
+            }
+        }
+
+        //  A replay must start from the same World it was recorded on
+        if (replay != null) {
+            sim = new Simulation(new World(replay.getStartWidth(), replay.getStartHeight()), metrics);
+            sim.replay(replay);
+        } else {
+            World world = new World(width, height);
+            if (Checkpoint.DEFAULT_RESTORE != null) {
+                try {
+                    Checkpoint.restore(world, Checkpoint.DEFAULT_RESTORE);
+                } catch (IOException e) {
+                    System.err.println("Could not restore checkpoint, " + e.getMessage());
+                    world = new World(width, height);
+                }
+            }
+            sim = new Simulation(world, metrics);
+        }
+
+        //  Only live input on a new World is recorded
+        if (InputRecorder.DEFAULT_PATH != null && replay == null && Checkpoint.DEFAULT_RESTORE == null) {
+            try {
+                sim.record(new InputRecorder(InputRecorder.DEFAULT_PATH, width, height));
+            } catch (IOException e) {
+                System.err.println("Could not record input, " + e.getMessage());
+            }
+        }
     }
 
     /**
      * Called once every frame.
-     * All drawing to window buffer occurs here, either directly or indirectly (from supporting classes called)
+     * Hands the latest input to the Simulation,
+     * then draws its newest Snapshot to the window buffer
      */
 
     public void draw() {
+        long frameStart = System.nanoTime();
+        quality = governor.getQuality();
 
-        //  Set window title based on current mode
-        if (dynamic) {
-            surface.setTitle("Triangles - Dynamic");
+        Snapshot snapshot;
+        if (viewer != null) {
+            snapshot = viewer.latest();
         } else {
-            surface.setTitle("Triangles - Static");
+            //  Keep the world the size of the window
+            sim.setSize(width, height);
+            sim.setMouse(mouseX, mouseY);
+            snapshot = sim.latest();
+        }
+        float alpha = Simulation.alpha(snapshot);
+
+        if (server != null) {
+            long streamStart = System.nanoTime();
+            server.publish(snapshot);
+            metrics.record(Phase.STREAM, System.nanoTime() - streamStart);
         }
 
+        boolean bounce = snapshot.getBounceMode();
+        Gravity gravityMode = snapshot.getGravityMode();
+
+        //  Set window title based on current mode
+        String modeTitle = snapshot.getDynamicMode() ? "Triangles - Dynamic" : "Triangles - Static";
+        if (!modeTitle.equals(title)) {
+            surface.setTitle(modeTitle);
+            title = modeTitle;
+        }
+
+        long start = System.nanoTime();
+        long end;
+
         //  Set hue based on horizontal mouse position
         float hue = map(mouseX, 0, width, 0, 360);
         background(hue, SAT, BRIGHT, 100);
@@ -223,13 +351,13 @@ public class TriangleManager extends PApplet {
             stroke(color(0, 0, 0));
             strokeWeight(2);
             fill(color(0, 0, 100));
-            ellipse(gravList.get(0).x, gravList.get(0).y, 4, 4);
+            ellipse(snapshot.getGravityX(0), snapshot.getGravityY(0), 4, 4);
         } else if (gravityMode == Gravity.MULTI_POINT) {
             stroke(color(0, 0, 0));
             strokeWeight(2);
             fill(color(0, 0, 100));
-            for (PVector v : gravList) {
-                ellipse(v.x, v.y, 40, 40);
+            for (int i = 0; i < snapshot.getGravityCount(); i++) {
+                ellipse(snapshot.getGravityX(i), snapshot.getGravityY(i), 40, 40);
             }
         }
 
@@ -241,220 +369,72 @@ public class TriangleManager extends PApplet {
             line(mouseX - 10, mouseY, mouseX + 10, mouseY);
         }
 
-        //  Initial values for timing vars
-        double triangleTime;
-        double bulletUpdateTime ;
-        double bulletDrawTime;
-        long start;
-        long end;
-
-        bulletCount = 0;
-
-        start = System.nanoTime();
-        for (Triangle t : triangles) {
-
-            for (Bullet b : t.bullets()) {
-
-                b.update();
-                //b.draw();
-
-            }
-        }
         end = System.nanoTime();
-        bulletUpdateTime = (end - start) / 1000000d / triangles.size();
+        metrics.record(Phase.BACKGROUND, end - start);
 
         start = System.nanoTime();
-        for (Triangle t : triangles) {
-
-            for (Bullet b : t.bullets()) {
-
-                //b.update();
-                b.draw();
-
-            }
-
-        }
+        bulletRenderer.draw(g, snapshot, alpha, quality);
         end = System.nanoTime();
-        bulletDrawTime = (end - start) / 1000000d / triangles.size();
+        metrics.record(Phase.BULLET_DRAW, end - start);
 
         start = System.nanoTime();
-        for (Triangle t : triangles) {
-
-            t.update();
-            t.draw();
-
-            bulletCount += t.bullets().size();
-        }
+        triangleRenderer.draw(g, snapshot, alpha);
         end = System.nanoTime();
-        triangleTime = (end - start) / 1000000d / triangles.size();
-
-        /*
-
-        //  Iterate over Triangle List
-        for (Triangle t : triangles) {
-
-            //  Start Timer and operate on Bullets
-            //  Iterates over all bullets created and managed by a Triangle
-            start = System.nanoTime();
-            for (Bullet b : t.bullets()) {
-                b.update();
-                //b.draw();
-            }
-            end = System.nanoTime();
-            bulletUpdateTime = (end - start) / 1000000d;
-            start = System.nanoTime();
-            for (Bullet b : t.bullets()) {
-                //b.update();
-                b.draw();
-            }
-            end = System.nanoTime();
-            bulletDrawTime = (end - start) / 1000000d;
-
-            //  Start Timer and operate on Triangles
-            //  Simple update and draw execution
-            start = System.nanoTime();
-            t.update();
-            t.draw();
-            end = System.nanoTime();
-            triangleTime = (end - start) / 1000000d;
-
-            //  Add to total bullet count
-            bulletCount += t.bullets().size();
-
-        }
-
-        */
-
-        //  Only if in dynamic mode
-        //  Check for mouse buttons and key presses and perform actions accordingly
-        if (dynamic) {
-            //  Add Triangles
-            if (mouseButtons[RIGHT] && (frameCount % TRIANGLE_ADD_FREQ) == 0) {
-                handleAdd();
-            }
-            //  Remove Triangles
-            if (keys[(int) BACKSPACE] && (frameCount % TRIANGLE_REMOVE_FREQ) == 0) {
-                if (triangles.size() != 0) {
-                    triangles.remove(0);
-                }
-            }
-            //  Add Bullets
-            if (mouseButtons[LEFT] && (frameCount % BULLET_FREQ) == 0) {
-                for (Triangle t : triangles) {
-                    if (bulletCount < BULLET_LIMIT) {
-                        t.addBullet();
-                    }
-                }
-            }
-        }
+        metrics.record(Phase.TRIANGLE_DRAW, end - start);
 
         //  Print basic debug text to screen
         //  Text is written to top left corner of window
+        //  At lower Quality it is drawn to its own buffer only every few frames
+        start = System.nanoTime();
         if (!onControls) {
-            textSize(12);
-            fill(0);
-            textMode(SHAPE);
-            textAlign(LEFT);
-
-            float yLoc = 50;
-            text("X: " + mouseX, 50, yLoc);
-            yLoc += 20;
-            text("Y: " + mouseY, 50, yLoc);
-            yLoc += 20;
-            text("Triangle Count: " + triangles.size(), 50, yLoc);
-            yLoc += 20;
-            text("Bullet Count: " + bulletCount, 50, yLoc);
-            yLoc += 20;
-            String triangleText = String.format("Triangle Time: ~%.4fms", triangleTime);
-            String bulletUpdateText = String.format("Bullet Update Time: ~%.4fms", bulletUpdateTime);
-            String bulletDrawText = String.format("Bullet Draw Time: ~%.4fms", bulletDrawTime);
-            String FPSText = String.format("FPS: %d", (int) frameRate);
-            text(triangleText, 50, yLoc);
-            yLoc += 20;
-            text(bulletUpdateText, 50, yLoc);
-            yLoc += 20;
-            text(bulletDrawText, 50, yLoc);
-            yLoc += 20;
-            text(FPSText, 50, yLoc);
-            yLoc += 20;
-            if (bounce) {
-                text("Bounce: ON", 50, yLoc);
-            } else {
-                text("Bounce: OFF", 50, yLoc);
-            }
-            yLoc += 20;
-            if (gravityMode == Gravity.OFF) {
-                text("Decay: OFF", 50, yLoc);
-            } else {
-                text("Decay: " + decay, 50, yLoc);
-            }
-            yLoc += 20;
-            text("Gravity Mode: " + gravityMode, 50, yLoc);
-
+            hud.setFrame(mouseX, mouseY, frameRate, frameCount, quality, capturing);
+            hud.draw(line, g, snapshot, metrics);
         }
+        end = System.nanoTime();
+        metrics.record(Phase.HUD, end - start);
 
+        start = System.nanoTime();
         if (onControls) {
             controls.update();
             controls.draw();
         }
-    }
-
-    /**
-     * Handles adding of Triangles to screen
-     * Will erase oldest if over TRIANGLE_LIMIT already on screen
-     */
-    private void handleAdd() {
-        if (triangles.size() != 0) {
-            //  Make sure the mouse is in a different position
-            if (mouseX != triangles.get(triangles.size() - 1).getPos().x || mouseY != triangles.get(triangles.size() - 1).getPos().y) {
-                triangles.add(new Triangle(this, new PVector(mouseX, mouseY)));
-                //  Remove oldest
-                if (triangles.size() > TRIANGLE_LIMIT) {
-                    triangles.remove(0);
-                }
-            }
-        } else {
-            //  If brand-new, just add one!
-            triangles.add(new Triangle(this, new PVector(mouseX, mouseY)));
-        }
-    }
-
-    boolean getBounceMode() {
-        return bounce;
-    }
-
-    Gravity getGravityMode() {
-        return gravityMode;
-    }
+        end = System.nanoTime();
+        metrics.record(Phase.CONTROLS, end - start);
 
-    PVector getGravityPoint() {
-        if (gravityMode == Gravity.SIMPLE || gravityMode == Gravity.TRUE) {
-            return new PVector(mouseX, mouseY);
-        } else {
-            return gravList.get(0);
+        //  Only the copy of the pixels is paid for here, writing them is left to the encoders
+        if (capturing) {
+            start = System.nanoTime();
+            capture.capture(g, frameCount);
+            end = System.nanoTime();
+            metrics.record(Phase.CAPTURE, end - start);
         }
-    }
 
-    ArrayList<PVector> getGravityList() {
-        return gravList;
-    }
-
-    float getBorderWeight() {
-        return BORDER_WEIGHT;
-    }
-
-    float getDecay() {
-        return decay;
+        metrics.record(Phase.FRAME, end - frameStart);
+        metrics.tick(end);
+        governor.record(end - frameStart, end);
     }
 
     /**
-     * Getter method for keyCodes
-     *
-     * @return the keyCodes array
+     * Is called once when the sketch shuts down
+     * Stops the Simulation, finishes writing captured frames and closes the metrics file
      */
-
-    boolean[] getKeyCodes() {
-        return keyCodes;
+    public void dispose() {
+        if (sim != null) {
+            sim.stop();
+        }
+        if (server != null) {
+            server.close();
+        }
+        if (viewer != null) {
+            viewer.stop();
+        }
+        if (capture != null) {
+            capture.close();
+        }
+        if (metrics != null) {
+            metrics.close();
+        }
+        super.dispose();
     }
 
     /**
@@ -472,52 +452,24 @@ public class TriangleManager extends PApplet {
         char k = event.getKey();
         int kc = event.getKeyCode();
 
-        if (k < keys.length) {
-            keys[k] = true;
-        } else {
-            keyCodes[kc] = true;
-        }
-
         // Handle key data
-        if (k == ENTER) {
-            dynamic = !dynamic;
-        }
         if (k == 'h') {
             onControls = true;
         }
-        if (k == ' ') {
-            triangles.clear();
-        }
-        if (k == 'b') {
-            bounce = !bounce;
-        }
-        if (k == 'c') {
-            for (Triangle t : triangles) {
-                t.clearBullets();
-            }
-        }
-        if (k == '1') {
-            gravityMode = Gravity.OFF;
-        }
-        if (k == '2') {
-            gravityMode = Gravity.SIMPLE;
-        }
-        if (k == '3') {
-            gravityMode = Gravity.TRUE;
+        if (k == 'v' && capture != null) {
+            capturing = !capturing;
         }
-        if (k == '4') {
-            gravityMode = Gravity.POINT;
+        //  A viewer only draws, the World is steered from the window serving it
+        if (viewer != null) {
+            return;
         }
-        if (k == '5') {
-            gravityMode = Gravity.MULTI_POINT;
+        if (k == 's') {
+            sim.save(Checkpoint.DEFAULT_PATH);
         }
-        if (!dynamic) {
-            if (k == BACKSPACE) {
-                if (triangles.size() != 0) {
-                    triangles.remove(0);
-                }
-            }
+        if (k == 'z') {
+            sim.restore(Checkpoint.DEFAULT_PATH);
         }
+        sim.keyPressed(k, kc);
     }
 
     /**
@@ -530,10 +482,8 @@ public class TriangleManager extends PApplet {
         int kc = event.getKeyCode();
 
         //  Simply set corresponding array pos to false;
-        if (k < keys.length) {
-            keys[k] = false;
-        } else {
-            keyCodes[kc] = false;
+        if (viewer == null) {
+            sim.keyReleased(k, kc);
         }
     }
 
@@ -551,29 +501,9 @@ public class TriangleManager extends PApplet {
             return;
         }
 
-        //  Set array position to true
-        mouseButtons[mb] = true;
-
-        if (mb == CENTER) {
-            if (gravityMode != Gravity.MULTI_POINT) {
-                gravList.set(0, new PVector(mouseX, mouseY));
-            } else {
-                gravList.add(new PVector(mouseX, mouseY));
-            }
-        }
-
-        //  Handle mouse button actions
-        if (!dynamic) {
-            if (mb == LEFT) {
-                for (Triangle t : triangles) {
-                    if (bulletCount < BULLET_LIMIT) {
-                        t.addBullet();
-                    }
-                }
-            }
-            if (mb == RIGHT) {
-                handleAdd();
-            }
+        //  Set array position to true, and handle mouse button actions
+        if (viewer == null) {
+            sim.mousePressed(mb, mouseX, mouseY);
         }
     }
 
@@ -587,7 +517,9 @@ public class TriangleManager extends PApplet {
         int mb = event.getButton();
 
         //  Simply set position to false
-        mouseButtons[mb] = false;
+        if (viewer == null) {
+            sim.mouseReleased(mb);
+        }
     }
 
     /**
@@ -0,0 +1,124 @@
+package me.paul.triangles;
+
+import processing.core.PConstants;
+import processing.core.PGraphics;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Draws every Triangle as one batch.
+ * The three corners of every Triangle are turned to its heading
+ * and moved to its location here on the CPU, written into one reusable buffer,
+ * then sent as a single TRIANGLES shape with a color per Triangle.
+ * No matrix changes or per-Triangle shapes are needed
+ * @version 1.0
+ */
+
+class TriangleRenderer {
+
+    /**
+     * Default values for stroke weight, Saturation and Brightness
+     * of Triangles
+     */
+    private static final float STROKE_WEIGHT = 5;
+    private static final float SAT = 85;
+    private static final float BRIGHT = 100;
+
+    private static final int BLACK = 0xFF000000;
+
+    /**
+     * Color of a Triangle by its heading
+     */
+    private static final ColorTable PALETTE = ColorTable.fixed(SAT, BRIGHT);
+
+    /**
+     * Corners (six floats) and color of every Triangle, reused every frame
+     */
+    private float[] corners;
+    private int[] colors;
+    private int count;
+
+    /**
+     * Constructor for a TriangleRenderer object
+     */
+
+    TriangleRenderer() {
+        corners = new float[0];
+        colors = new int[0];
+    }
+
+    /**
+     * Draws every Triangle to a PGraphics
+     *
+     * @param g        where to draw the Triangles
+     * @param snapshot the step holding the Triangles to draw
+     * @param alpha    how far between the step before and the snapshot's own, from 0 to 1
+     */
+    void draw(PGraphics g, Snapshot snapshot, float alpha) {
+        fill(snapshot, alpha);
+        submit(g);
+    }
+
+    /**
+     * Writes the corners and color of every Triangle into the buffer
+     *
+     * @param snapshot the step holding the Triangles to write
+     * @param alpha    how far between the step before and the snapshot's own, from 0 to 1
+     */
+    private void fill(Snapshot snapshot, float alpha) {
+        count = snapshot.getTriangleCount();
+        if (colors.length < count) {
+            corners = new float[count * 12];
+            colors = new int[count * 2];
+        }
+
+        for (int i = 0; i < count; i++) {
+            float posX = snapshot.getTriangleX(i, alpha);
+            float posY = snapshot.getTriangleY(i, alpha);
+            float vx = snapshot.getTriangleVelocityX(i);
+            float vy = snapshot.getTriangleVelocityY(i);
+
+            //  "Up" of the Triangle points along its heading, "right" is a quarter turn clockwise
+            float speed = (float) Math.sqrt(vx * vx + vy * vy);
+            float upX = vx / speed;
+            float upY = vy / speed;
+            float rightX = -upY;
+            float rightY = upX;
+
+            int k = i * 6;
+            //  Tip
+            corners[k] = posX - upX * Triangle.TIP_Y;
+            corners[k + 1] = posY - upY * Triangle.TIP_Y;
+            //  Base, left then right
+            corners[k + 2] = posX - rightX * Triangle.BASE_X - upX * Triangle.BASE_Y;
+            corners[k + 3] = posY - rightY * Triangle.BASE_X - upY * Triangle.BASE_Y;
+            corners[k + 4] = posX + rightX * Triangle.BASE_X - upX * Triangle.BASE_Y;
+            corners[k + 5] = posY + rightY * Triangle.BASE_X - upY * Triangle.BASE_Y;
+
+            colors[i] = PALETTE.colorFor(vx, vy);
+        }
+    }
+
+    /**
+     * Sends the whole buffer as one shape
+     *
+     * @param g where to draw the Triangles
+     */
+    private void submit(PGraphics g) {
+        if (count == 0) {
+            return;
+        }
+
+        g.stroke(BLACK);
+        g.strokeWeight(STROKE_WEIGHT);
+        g.beginShape(PConstants.TRIANGLES);
+        for (int i = 0; i < count; i++) {
+            int k = i * 6;
+            g.fill(colors[i]);
+            g.vertex(corners[k], corners[k + 1]);
+            g.vertex(corners[k + 2], corners[k + 3]);
+            g.vertex(corners[k + 4], corners[k + 5]);
+        }
+        g.endShape();
+    }
+}
@@ -0,0 +1,165 @@
+package me.paul.triangles;
+
+import java.util.Arrays;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * Every Triangle in the World, oldest first, in a ring buffer.
+ * Adding the newest Triangle and removing the oldest both cost the same
+ * however many Triangles there are, as neither moves the others.
+ * <p>
+ * Triangles are read by position, 0 being the oldest.
+ * The ring doubles when full, and never shrinks
+ * @version 1.0
+ */
+
+class TriangleRing {
+
+    /**
+     * Slots of the ring, a power of two long
+     */
+    private Triangle[] slots;
+    private int mask;
+
+    /**
+     * Slot of the oldest Triangle, and amount of Triangles
+     */
+    private int head;
+    private int size;
+
+    /**
+     * Constructor for an empty TriangleRing object
+     *
+     * @param capacity Triangles to make room for up front, rounded up to a power of two
+     */
+
+    TriangleRing(int capacity) {
+        int length = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        slots = new Triangle[length];
+        mask = length - 1;
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Adds a Triangle as the newest
+     *
+     * @param t the Triangle to add
+     */
+    void add(Triangle t) {
+        if (size == slots.length) {
+            grow();
+        }
+        slots[(head + size) & mask] = t;
+        size++;
+    }
+
+    /**
+     * Removes the oldest Triangle
+     *
+     * @return the Triangle removed, or null if empty
+     */
+    Triangle removeOldest() {
+        if (size == 0) {
+            return null;
+        }
+        Triangle t = slots[head];
+        slots[head] = null;
+        head = (head + 1) & mask;
+        size--;
+        return t;
+    }
+
+    /**
+     * Removes every destroyed Triangle, keeping the others in order
+     *
+     * @return amount of Triangles removed
+     */
+    int removeDestroyed() {
+        int live = 0;
+        for (int i = 0; i < size; i++) {
+            Triangle t = slots[(head + i) & mask];
+            if (!t.isDestroyed()) {
+                slots[(head + live) & mask] = t;
+                live++;
+            }
+        }
+        for (int i = live; i < size; i++) {
+            slots[(head + i) & mask] = null;
+        }
+
+        int removed = size - live;
+        size = live;
+        return removed;
+    }
+
+    /**
+     * Getter method for a Triangle by age
+     *
+     * @param i position of the Triangle, 0 being the oldest
+     * @return the Triangle
+     */
+    Triangle get(int i) {
+        return slots[(head + i) & mask];
+    }
+
+    /**
+     * Finds a Triangle by id
+     * Ids only go up, so the ring is always sorted by them
+     *
+     * @param id id of the Triangle
+     * @return the Triangle, or null if there is none with that id
+     */
+    Triangle find(int id) {
+        int lo = 0;
+        int hi = size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int midId = get(mid).getId();
+            if (midId < id) {
+                lo = mid + 1;
+            } else if (midId > id) {
+                hi = mid - 1;
+            } else {
+                return get(mid);
+            }
+        }
+        return null;
+    }
+
+    Triangle oldest() {
+        return size == 0 ? null : slots[head];
+    }
+
+    Triangle newest() {
+        return size == 0 ? null : slots[(head + size - 1) & mask];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        Arrays.fill(slots, null);
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Doubles the ring, unwrapping it so the oldest Triangle is in slot 0
+     */
+    private void grow() {
+        Triangle[] old = slots;
+        slots = new Triangle[old.length * 2];
+        for (int i = 0; i < size; i++) {
+            slots[i] = old[(head + i) & mask];
+        }
+        mask = slots.length - 1;
+        head = 0;
+    }
+}
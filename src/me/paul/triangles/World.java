@@ -0,0 +1,851 @@
+package me.paul.triangles;
+
+import processing.core.PConstants;
+import processing.core.PVector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * @author Paul Wrubel - VoxaelFox
+ * <p>
+ * The simulation behind the window.
+ * Owns every Triangle and Bullet along with the gravity, bounce and decay settings,
+ * and advances one frame at a time with step().
+ * <p>
+ * Nothing in here draws, or needs a window,
+ * so the World can be stepped headless and as fast as the CPU allows
+ * @version 1.0
+ */
+
+class World {
+
+    /**
+     * Stroke weight for the window border, the bouncing "walls"
+     * Ranges from 0 - INF
+     */
+    static final float BORDER_WEIGHT = 12;
+
+    /**
+     * Default limit of the amount of Triangles and Bullets in the window
+     * Ranges from 0 - INF
+     */
+    static final int TRIANGLE_LIMIT = 500;
+    static final int BULLET_LIMIT = 1500;
+
+    /**
+     * Frequency of the creation (and removal) of Triangles and Bullets in dynamic mode
+     * 1 writes every frame, 5 every 5 frames, and so on.
+     * Lower values are faster
+     * Ranges from 1 - INF
+     */
+    private static final int TRIANGLE_ADD_FREQ = 4;
+    private static final int TRIANGLE_REMOVE_FREQ = 4;
+    private static final int BULLET_FREQ = 4;
+
+    /**
+     * Amount of threads updating Bullets, unless given to the constructor
+     * Set with -Dtriangles.workers=n, defaults to one per core
+     */
+    static final int DEFAULT_WORKERS = Integer.getInteger("triangles.workers", Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Size of the world, usually the size of the window
+     */
+    private int width;
+    private int height;
+
+    /**
+     * Controls mode of program
+     * Dynamic mode:
+     * Continuous creation and removal of Triangles and Bullets
+     * Smooth and constant movement of window when changing perspective
+     * Static mode:
+     * Every creation requires a mouse click or key press
+     * Perspective movement jumps to preset values and is block-like
+     */
+    private boolean dynamic;
+    private boolean bounce;
+    private boolean hits;
+    private int triangleLimit;
+    private Gravity gravityMode;
+    private ArrayList<PVector> gravList;
+    private int gravityVersion;
+    private float decay;
+
+    /**
+     * References to all Triangles, oldest first, and all Bullets
+     */
+    private TriangleRing triangles;
+    private int nextTriangleId;
+    private BulletStore bullets;
+
+    /**
+     * Grid of Triangles for finding Bullet hits,
+     * and room for the slots of the Triangles found near one Bullet
+     */
+    private SpatialHash hash;
+    private int[] candidates;
+
+    /**
+     * First Triangle every Bullet touches, by slot,
+     * and the slots binned by cell to look them up in, with the cell of every slot and where every cell starts.
+     * Every Bullet's location and owner are copied out in the binned order too, to be read straight through
+     */
+    private Triangle[] hitTargets;
+    private int[] hitOrder;
+    private int[] hitCells;
+    private int[] cellStarts;
+    private float[] hitXs;
+    private float[] hitYs;
+    private int[] hitOwners;
+
+    /**
+     * Ids of the Triangles destroyed in one step
+     */
+    private int[] destroyedIds;
+
+    /**
+     * Location of the mouse during the current step
+     */
+    private PVector mouse;
+
+    /**
+     * Amount of steps taken so far
+     */
+    private int frameCount;
+
+    /**
+     * Time taken by each part of the last step, in nanoseconds
+     */
+    private long bulletUpdateTime;
+    private long triangleUpdateTime;
+    private long hitTime;
+
+    /**
+     * Constructor for a World object
+     *
+     * @param width_  width of the world
+     * @param height_ height of the world
+     */
+
+    World(int width_, int height_) {
+        this(width_, height_, DEFAULT_WORKERS);
+    }
+
+    /**
+     * Constructor for a World object
+     *
+     * @param width_   width of the world
+     * @param height_  height of the world
+     * @param workers_ amount of threads to update Bullets with
+     */
+
+    World(int width_, int height_, int workers_) {
+        width = width_;
+        height = height_;
+
+        //  Initial values
+        dynamic = false;
+        bounce = false;
+        hits = false;
+        triangleLimit = TRIANGLE_LIMIT;
+        gravityMode = Gravity.OFF;
+        decay = 0.99f;
+
+        gravList = new ArrayList<>();
+        gravList.add(new PVector(width / 2, height / 2));
+        gravityVersion = 0;
+        triangles = new TriangleRing(TRIANGLE_LIMIT);
+        nextTriangleId = 0;
+        bullets = new BulletStore(this, workers_);
+        hash = new SpatialHash();
+        candidates = new int[16];
+        hitTargets = new Triangle[16];
+        hitOrder = new int[16];
+        hitCells = new int[16];
+        cellStarts = new int[16];
+        hitXs = new float[16];
+        hitYs = new float[16];
+        hitOwners = new int[16];
+        destroyedIds = new int[16];
+        mouse = new PVector(0, 0);
+        frameCount = 0;
+    }
+
+    /**
+     * Advances the world by one frame
+     *
+     * @param input state of the mouse and keyboard for this frame
+     */
+    void step(InputState input) {
+        frameCount++;
+        mouse.set(input.getMouseX(), input.getMouseY());
+
+        long start = System.nanoTime();
+        bullets.update();
+        long end = System.nanoTime();
+        bulletUpdateTime = end - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < triangles.size(); i++) {
+            Triangle t = triangles.get(i);
+            t.update(input);
+            hash.update(t);
+        }
+        end = System.nanoTime();
+        triangleUpdateTime = end - start;
+
+        start = System.nanoTime();
+        if (hits) {
+            handleHits();
+        }
+        end = System.nanoTime();
+        hitTime = end - start;
+
+        //  Only if in dynamic mode
+        //  Check for mouse buttons and key presses and perform actions accordingly
+        if (dynamic) {
+            //  Add Triangles
+            if (input.getMouseButtons()[PConstants.RIGHT] && (frameCount % TRIANGLE_ADD_FREQ) == 0) {
+                handleAdd();
+            }
+            //  Remove Triangles
+            if (input.getKeys()[PConstants.BACKSPACE] && (frameCount % TRIANGLE_REMOVE_FREQ) == 0) {
+                removeOldest();
+            }
+            //  Add Bullets
+            if (input.getMouseButtons()[PConstants.LEFT] && (frameCount % BULLET_FREQ) == 0) {
+                fireAll();
+            }
+        }
+    }
+
+    /**
+     * Handles a key being pressed down
+     *
+     * @param k character of the key pressed
+     */
+    void keyPressed(char k) {
+        if (k == PConstants.ENTER) {
+            dynamic = !dynamic;
+        }
+        if (k == ' ') {
+            triangles.clear();
+            hash.clear();
+            bullets.clear();
+        }
+        if (k == 'b') {
+            bounce = !bounce;
+        }
+        if (k == 'x') {
+            hits = !hits;
+        }
+        if (k == 'c') {
+            bullets.clear();
+        }
+        if (k == '1') {
+            gravityMode = Gravity.OFF;
+        }
+        if (k == '2') {
+            gravityMode = Gravity.SIMPLE;
+        }
+        if (k == '3') {
+            gravityMode = Gravity.TRUE;
+        }
+        if (k == '4') {
+            gravityMode = Gravity.POINT;
+        }
+        if (k == '5') {
+            gravityMode = Gravity.MULTI_POINT;
+        }
+        if (!dynamic) {
+            if (k == PConstants.BACKSPACE) {
+                removeOldest();
+            }
+        }
+    }
+
+    /**
+     * Handles a mouse button being pressed down
+     *
+     * @param mb    the mouse button pressed
+     * @param input state of the mouse and keyboard, for the mouse location
+     */
+    void mousePressed(int mb, InputState input) {
+        mouse.set(input.getMouseX(), input.getMouseY());
+
+        if (mb == PConstants.CENTER) {
+            if (gravityMode != Gravity.MULTI_POINT) {
+                gravList.set(0, mouse.copy());
+            } else {
+                gravList.add(mouse.copy());
+            }
+            gravityVersion++;
+        }
+
+        //  Handle mouse button actions
+        if (!dynamic) {
+            if (mb == PConstants.LEFT) {
+                fireAll();
+            }
+            if (mb == PConstants.RIGHT) {
+                handleAdd();
+            }
+        }
+    }
+
+    /**
+     * Handles adding of Triangles at the mouse
+     * Will erase oldest if over the Triangle limit already on screen
+     */
+    private void handleAdd() {
+        if (triangles.size() != 0) {
+            //  Make sure the mouse is in a different position
+            PVector last = triangles.newest().getPos();
+            if (mouse.x != last.x || mouse.y != last.y) {
+                addTriangle(mouse.x, mouse.y);
+                //  Remove oldest
+                if (triangles.size() > triangleLimit) {
+                    removeOldest();
+                }
+            }
+        } else {
+            //  If brand-new, just add one!
+            addTriangle(mouse.x, mouse.y);
+        }
+    }
+
+    /**
+     * Adds a Triangle at a location, ignoring the Triangle limit
+     *
+     * @param x horizontal location of the new Triangle
+     * @param y vertical location of the new Triangle
+     * @return the new Triangle
+     */
+    Triangle addTriangle(float x, float y) {
+        Triangle t = new Triangle(this, nextTriangleId++, new PVector(x, y));
+        triangles.add(t);
+        hash.insert(t);
+        if (candidates.length < triangles.size()) {
+            candidates = new int[triangles.size() * 2];
+        }
+        return t;
+    }
+
+    /**
+     * Removes the oldest Triangle, along with its Bullets
+     * Its Bullets are not looked for here, they are dropped by the next Bullet update,
+     * as their owner is older than the oldest Triangle left
+     */
+    void removeOldest() {
+        Triangle t = triangles.removeOldest();
+        if (t != null) {
+            hash.remove(t);
+        }
+    }
+
+    /**
+     * Checks every Bullet against the Triangles around it.
+     * A Bullet hitting a Triangle other than its owner is used up,
+     * and damages the Triangle, destroying it after enough hits
+     * <p>
+     * Bullets are looked up by findHits() first, then used up in slot order,
+     * so the same Bullets hit the same Triangles as checking each in turn would
+     */
+    void handleHits() {
+        int destroyed = 0;
+        int used = 0;
+
+        findHits();
+        for (int i = 0; i < bullets.size(); i++) {
+            Triangle t = hitTargets[i];
+            hitTargets[i] = null;
+            if (t == null) {
+                continue;
+            }
+            if (t.isDestroyed()) {
+                //  Destroyed by a Bullet before this one, so this one may hit the next Triangle along
+                t = firstHit(i);
+                if (t == null) {
+                    continue;
+                }
+            }
+            bullets.kill(i);
+            used++;
+            if (t.damage()) {
+                destroyed++;
+            }
+        }
+
+        //  Destroyed Triangles go, along with their Bullets,
+        //  all packed out in one pass each
+        if (destroyed > 0) {
+            if (destroyedIds.length < destroyed) {
+                destroyedIds = new int[destroyed * 2];
+            }
+            int n = 0;
+            for (int i = 0; i < triangles.size(); i++) {
+                Triangle t = triangles.get(i);
+                if (t.isDestroyed()) {
+                    hash.remove(t);
+                    destroyedIds[n++] = t.getId();
+                }
+            }
+            triangles.removeDestroyed();
+            bullets.removeOwners(destroyedIds, n);
+        } else if (used > 0) {
+            bullets.removeDead();
+        }
+    }
+
+    /**
+     * Finds the first Triangle every Bullet touches, other than its owner, into hitTargets.
+     * Bullets are binned by the cell they are in, and the Triangles around a cell are only
+     * looked up once for every Bullet in it, instead of once per Bullet anywhere in a grid too big to stay in the cache
+     *
+     * @return amount of Bullets touching a Triangle
+     */
+    int findHits() {
+        int count = bullets.size();
+        if (hitTargets.length < count) {
+            hitTargets = new Triangle[count * 2];
+            hitOrder = new int[count * 2];
+            hitCells = new int[count * 2];
+            hitXs = new float[count * 2];
+            hitYs = new float[count * 2];
+            hitOwners = new int[count * 2];
+        }
+        int lastColumn = Math.max(0, SpatialHash.cellOf(width));
+        int lastRow = Math.max(0, SpatialHash.cellOf(height));
+
+        //  A World far bigger than its Bullets is binned by blocks of cells instead,
+        //  so there are never many more bins than Bullets
+        int shift = 0;
+        while (((long) (lastColumn >> shift) + 1) * ((lastRow >> shift) + 1) > count * 4L + 64) {
+            shift++;
+        }
+        int columns = (lastColumn >> shift) + 1;
+        int cells = columns * ((lastRow >> shift) + 1);
+        if (cellStarts.length < cells + 1) {
+            cellStarts = new int[(cells + 1) * 2];
+        }
+
+        //  Counted into cells, Bullets off the edge going to the nearest one
+        Arrays.fill(cellStarts, 0, cells + 1, 0);
+        for (int i = 0; i < count; i++) {
+            int cx = Math.min(Math.max(SpatialHash.cellOf(bullets.getX(i)), 0), lastColumn) >> shift;
+            int cy = Math.min(Math.max(SpatialHash.cellOf(bullets.getY(i)), 0), lastRow) >> shift;
+            int cell = cy * columns + cx;
+            hitCells[i] = cell;
+            cellStarts[cell + 1]++;
+        }
+        for (int c = 0; c < cells; c++) {
+            cellStarts[c + 1] += cellStarts[c];
+        }
+        for (int i = 0; i < count; i++) {
+            int k = cellStarts[hitCells[i]]++;
+            hitOrder[k] = i;
+            hitXs[k] = bullets.getX(i);
+            hitYs[k] = bullets.getY(i);
+            hitOwners[k] = bullets.getOwner(i);
+        }
+
+        int hit = 0;
+        int found = 0;
+        int lastX = Integer.MIN_VALUE;
+        int lastY = Integer.MIN_VALUE;
+        for (int k = 0; k < count; k++) {
+            float x = hitXs[k];
+            float y = hitYs[k];
+
+            //  Bullets sharing a bin may still be in different cells
+            int cx = SpatialHash.cellOf(x);
+            int cy = SpatialHash.cellOf(y);
+            if (cx != lastX || cy != lastY) {
+                found = hash.candidates(x, y, candidates);
+                lastX = cx;
+                lastY = cy;
+            }
+            Triangle t = firstHit(x, y, hitOwners[k], found);
+            hitTargets[hitOrder[k]] = t;
+            if (t != null) {
+                hit++;
+            }
+        }
+        return hit;
+    }
+
+    /**
+     * Finds the first Triangle a Bullet touches, other than its owner or one already destroyed
+     *
+     * @param i slot of the Bullet
+     * @return the Triangle, or null if it touches none
+     */
+    private Triangle firstHit(int i) {
+        float x = bullets.getX(i);
+        float y = bullets.getY(i);
+        return firstHit(x, y, bullets.getOwner(i), hash.candidates(x, y, candidates));
+    }
+
+    /**
+     * Finds the first of the Triangles found around a Bullet that it touches
+     *
+     * @param found amount of Triangles in candidates
+     * @return the Triangle, or null if it touches none
+     */
+    private Triangle firstHit(float x, float y, int owner, int found) {
+        for (int k = 0; k < found; k++) {
+            int slot = candidates[k];
+            if (hash.getId(slot) != owner && hash.touches(slot, x, y, BulletStore.RADIUS) && !hash.get(slot).isDestroyed()) {
+                return hash.get(slot);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Fires a Bullet from every Triangle
+     * Past the Bullet limit, the oldest Bullets make way for the new ones
+     */
+    void fireAll() {
+        for (int i = 0; i < triangles.size(); i++) {
+            triangles.get(i).addBullet();
+        }
+    }
+
+    /**
+     * Getter method for the size of this World in a checkpoint
+     *
+     * @return size, in bytes
+     */
+    int getCheckpointBytes() {
+        return 48 + gravList.size() * 8 + triangles.size() * Triangle.CHECKPOINT_BYTES
+                + hash.getCheckpointBytes() + bullets.getCheckpointBytes();
+    }
+
+    /**
+     * Writes everything about this World to a checkpoint:
+     * settings, gravity points, Triangles, the grid they are kept in, and Bullets
+     *
+     * @param out where to write, with room for getCheckpointBytes()
+     */
+    void write(ByteBuffer out) {
+        out.putInt(width);
+        out.putInt(height);
+        out.putInt(frameCount);
+        out.putInt(nextTriangleId);
+        out.put((byte) (dynamic ? 1 : 0));
+        out.put((byte) (bounce ? 1 : 0));
+        out.put((byte) (hits ? 1 : 0));
+        out.put((byte) gravityMode.ordinal());
+        out.putFloat(decay);
+        out.putInt(triangleLimit);
+        out.putInt(gravityVersion);
+        //  Room for more settings in later versions
+        out.putLong(0);
+
+        out.putInt(gravList.size());
+        for (int i = 0; i < gravList.size(); i++) {
+            out.putFloat(gravList.get(i).x);
+            out.putFloat(gravList.get(i).y);
+        }
+
+        out.putInt(triangles.size());
+        for (int i = 0; i < triangles.size(); i++) {
+            triangles.get(i).write(out);
+        }
+        hash.write(out);
+
+        bullets.write(out);
+    }
+
+    /**
+     * Replaces everything about this World with a checkpoint
+     * The whole checkpoint is read and checked before anything is replaced,
+     * so a bad one leaves this World as it was
+     *
+     * @param in where to read from
+     * @throws IOException if the checkpoint holds a setting this World doesn't know,
+     *                     or more than it has bytes for
+     */
+    void read(ByteBuffer in) throws IOException {
+        int width_ = in.getInt();
+        int height_ = in.getInt();
+        if (width_ <= 0 || height_ <= 0) {
+            throw new IOException("World of " + width_ + "x" + height_);
+        }
+        int frameCount_ = in.getInt();
+        int nextTriangleId_ = in.getInt();
+        boolean dynamic_ = in.get() != 0;
+        boolean bounce_ = in.get() != 0;
+        boolean hits_ = in.get() != 0;
+        int mode = in.get();
+        if (mode < 0 || mode >= Gravity.values().length) {
+            throw new IOException("Unknown gravity mode " + mode);
+        }
+        float decay_ = in.getFloat();
+        int triangleLimit_ = in.getInt();
+        if (triangleLimit_ < 0) {
+            throw new IOException("Triangle limit of " + triangleLimit_);
+        }
+        int gravityVersion_ = in.getInt();
+        in.getLong();
+
+        int points = in.getInt();
+        if (points < 1 || points > in.remaining() / 8) {
+            throw new IOException(points + " gravity points");
+        }
+        ArrayList<PVector> gravList_ = new ArrayList<>(points);
+        for (int i = 0; i < points; i++) {
+            gravList_.add(new PVector(in.getFloat(), in.getFloat()));
+        }
+
+        int count = in.getInt();
+        if (count < 0 || count > in.remaining() / Triangle.CHECKPOINT_BYTES) {
+            throw new IOException(count + " Triangles");
+        }
+        Triangle[] restored = new Triangle[count];
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            restored[i] = Triangle.read(this, in);
+            ids[i] = restored[i].getId();
+            //  Kept sorted by id, to be found by it
+            if (i > 0 && ids[i] <= ids[i - 1]) {
+                throw new IOException("Triangle " + ids[i] + " out of order");
+            }
+        }
+        //  New Triangles are given ids from here, which must not be taken already
+        if (count > 0 && nextTriangleId_ <= ids[count - 1]) {
+            throw new IOException("Next Triangle id " + nextTriangleId_ + " already taken");
+        }
+
+        int buckets = in.getInt();
+        if (Integer.bitCount(buckets) != 1 || buckets > SpatialHash.MAX_BUCKETS) {
+            throw new IOException("Grid of " + buckets + " buckets");
+        }
+        //  Every Triangle is in the grid once
+        int hashed = in.getInt();
+        if (hashed != count || hashed > in.remaining() / 4) {
+            throw new IOException("Grid of " + hashed + " Triangles, not " + count);
+        }
+        int[] hashOrder = new int[count];
+        boolean[] inGrid = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            int id = in.getInt();
+            int t = Arrays.binarySearch(ids, id);
+            if (t < 0 || inGrid[t]) {
+                throw new IOException("Grid holds unknown Triangle " + id);
+            }
+            inGrid[t] = true;
+            hashOrder[i] = t;
+        }
+
+        int bulletsStart = in.position();
+        BulletStore.check(in);
+
+        //  All good, replace everything
+        width = width_;
+        height = height_;
+        frameCount = frameCount_;
+        nextTriangleId = nextTriangleId_;
+        dynamic = dynamic_;
+        bounce = bounce_;
+        hits = hits_;
+        gravityMode = Gravity.values()[mode];
+        decay = decay_;
+        triangleLimit = triangleLimit_;
+        //  Past any version the field was cached for
+        gravityVersion = Math.max(gravityVersion, gravityVersion_) + 1;
+
+        gravList.clear();
+        gravList.addAll(gravList_);
+
+        triangles.clear();
+        for (Triangle t : restored) {
+            triangles.add(t);
+        }
+        if (candidates.length < count) {
+            candidates = new int[count * 2];
+        }
+        hash.reset(buckets);
+        for (int t : hashOrder) {
+            hash.insert(restored[t]);
+        }
+
+        in.position(bulletsStart);
+        bullets.read(in);
+    }
+
+    /**
+     * Sets the size of the world, such as when the window is resized
+     *
+     * @param width_  new width
+     * @param height_ new height
+     */
+    void setSize(int width_, int height_) {
+        width = width_;
+        height = height_;
+    }
+
+    void setBounceMode(boolean bounce_) {
+        bounce = bounce_;
+    }
+
+    void setGravityMode(Gravity gravityMode_) {
+        gravityMode = gravityMode_;
+    }
+
+    /**
+     * Sets the limits on the amount of Triangles and Bullets,
+     * past which the oldest of them are removed
+     *
+     * @param triangleLimit_ most Triangles
+     * @param bulletLimit_   most Bullets
+     */
+    void setLimits(int triangleLimit_, int bulletLimit_) {
+        triangleLimit = triangleLimit_;
+        bullets.setLimit(bulletLimit_);
+    }
+
+    int getTriangleLimit() {
+        return triangleLimit;
+    }
+
+    int getBulletLimit() {
+        return bullets.getLimit();
+    }
+
+    /**
+     * Sets how long new Bullets live for
+     *
+     * @param ttl steps a Bullet lives for, 0 for forever
+     */
+    void setBulletTtl(int ttl) {
+        bullets.setTtl(ttl);
+    }
+
+    void setDecay(float decay_) {
+        decay = decay_;
+    }
+
+    /**
+     * Moves the first gravity point, the one POINT gravity pulls towards
+     *
+     * @param x horizontal location of the point
+     * @param y vertical location of the point
+     */
+    void setGravityPoint(float x, float y) {
+        gravList.get(0).set(x, y);
+        gravityVersion++;
+    }
+
+    /**
+     * Adds another point for MULTI_POINT gravity to pull towards
+     *
+     * @param x horizontal location of the point
+     * @param y vertical location of the point
+     */
+    void addGravityPoint(float x, float y) {
+        gravList.add(new PVector(x, y));
+        gravityVersion++;
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    boolean getDynamicMode() {
+        return dynamic;
+    }
+
+    boolean getBounceMode() {
+        return bounce;
+    }
+
+    boolean getHitMode() {
+        return hits;
+    }
+
+    void setHitMode(boolean hits_) {
+        hits = hits_;
+    }
+
+    Gravity getGravityMode() {
+        return gravityMode;
+    }
+
+    PVector getGravityPoint() {
+        if (gravityMode == Gravity.SIMPLE || gravityMode == Gravity.TRUE) {
+            return mouse;
+        } else {
+            return gravList.get(0);
+        }
+    }
+
+    ArrayList<PVector> getGravityList() {
+        return gravList;
+    }
+
+    /**
+     * Getter method for the gravity version
+     * Changes every time a gravity point is moved or added
+     *
+     * @return version of the gravity points
+     */
+    int getGravityVersion() {
+        return gravityVersion;
+    }
+
+    float getBorderWeight() {
+        return BORDER_WEIGHT;
+    }
+
+    float getDecay() {
+        return decay;
+    }
+
+    TriangleRing getTriangles() {
+        return triangles;
+    }
+
+    /**
+     * Getter method for the id of the oldest Triangle
+     * No Triangle with a lower id is left, so neither should its Bullets be
+     *
+     * @return id of the oldest Triangle, or the next id if there are none
+     */
+    int getOldestTriangleId() {
+        return triangles.isEmpty() ? nextTriangleId : triangles.oldest().getId();
+    }
+
+    BulletStore getBullets() {
+        return bullets;
+    }
+
+    SpatialHash getHash() {
+        return hash;
+    }
+
+    int getFrameCount() {
+        return frameCount;
+    }
+
+    long getBulletUpdateTime() {
+        return bulletUpdateTime;
+    }
+
+    long getTriangleUpdateTime() {
+        return triangleUpdateTime;
+    }
+
+    long getHitTime() {
+        return hitTime;
+    }
+}